@@ -0,0 +1,101 @@
+package com.bankstatement.batch.benchmark;
+
+import com.bankstatement.batch.configs.AccountResultSetExtractor;
+import com.bankstatement.batch.domain.Account;
+import com.bankstatement.batch.domain.Transaction;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.util.StringUtils;
+
+import javax.sql.rowset.CachedRowSet;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+/***
+ * Compares the shared AccountResultSetExtractor with the previous per-call implementation.
+ * Scores and -prof gc allocation figures are per row, run with -prof gc to see the per-row allocation.
+ */
+@State(Scope.Thread)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class AccountResultSetExtractorBenchmark {
+
+  private static final int ACCOUNTS = 2;
+  private static final int TRANSACTIONS_PER_ACCOUNT = 500;
+  private static final int ROWS = ACCOUNTS * TRANSACTIONS_PER_ACCOUNT;
+
+  @Param("42")
+  private long seed;
+
+  private CachedRowSet rows;
+  private final AccountResultSetExtractor extractor = new AccountResultSetExtractor();
+
+  @Setup
+  public void setUp() throws SQLException {
+    rows = AccountRows.create(ACCOUNTS, TRANSACTIONS_PER_ACCOUNT, seed);
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(ROWS)
+  public List<Account> sharedExtractor() throws SQLException {
+    rows.beforeFirst();
+    return extractor.extractData(rows);
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(ROWS)
+  public List<Account> previousExtractor() throws SQLException {
+    rows.beforeFirst();
+    return new PreviousAccountResultSetExtractor().extractData(rows);
+  }
+
+  // AccountResultSetExtractor as it was before it became stateless, kept as the baseline
+  static class PreviousAccountResultSetExtractor {
+
+    private List<Account> accounts = new ArrayList<>();
+    private Account curAccount;
+
+    List<Account> extractData(ResultSet rs) throws SQLException {
+      while (rs.next()) {
+        if (curAccount == null) {
+          curAccount = new Account(
+            rs.getLong("account_id"),
+            rs.getBigDecimal("balance"),
+            rs.getDate("last_statement_date"));
+        } else if (rs.getLong("account_id") != curAccount.getId()) {
+          accounts.add(curAccount);
+          curAccount = new Account(
+            rs.getLong("account_id"),
+            rs.getBigDecimal("balance"),
+            rs.getDate("last_statement_date"));
+        }
+
+        if (StringUtils.hasText(rs.getString("description"))) {
+          curAccount.addTransaction(
+            new Transaction(rs.getLong("transaction_id"),
+              rs.getLong("account_id"),
+              rs.getString("description"),
+              rs.getBigDecimal("credit"),
+              rs.getBigDecimal("debit"),
+              new Date(rs.getTimestamp("timestamp").getTime())));
+        }
+      }
+
+      if (curAccount != null) {
+        accounts.add(curAccount);
+      }
+      return accounts;
+    }
+  }
+}
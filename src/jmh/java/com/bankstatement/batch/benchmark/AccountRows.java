@@ -0,0 +1,74 @@
+package com.bankstatement.batch.benchmark;
+
+import javax.sql.rowset.CachedRowSet;
+import javax.sql.rowset.RowSetMetaDataImpl;
+import javax.sql.rowset.RowSetProvider;
+import java.math.BigDecimal;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.Random;
+
+/***
+ * Builds an in-memory ResultSet shaped like the account/transaction join of AccountItemProcessor,
+ * so the extractor can be measured without a database round trip.
+ */
+public final class AccountRows {
+
+  private static final long FIRST_TIMESTAMP = Timestamp.valueOf("2018-05-01 00:00:00").getTime();
+  private static final String[] DESCRIPTIONS = {"Skinix", "Mydeo", "Quinu", "Buzzbean", "Skibox", "Dynava", "Voonyx", "Zoomzone"};
+
+  private AccountRows() {
+  }
+
+  public static CachedRowSet create(int accounts, int transactionsPerAccount, long seed) throws SQLException {
+    Random random = new Random(seed);
+
+    RowSetMetaDataImpl metaData = new RowSetMetaDataImpl();
+    metaData.setColumnCount(8);
+    column(metaData, 1, "account_id", Types.BIGINT);
+    column(metaData, 2, "balance", Types.DECIMAL);
+    column(metaData, 3, "last_statement_date", Types.TIMESTAMP);
+    column(metaData, 4, "transaction_id", Types.BIGINT);
+    column(metaData, 5, "description", Types.VARCHAR);
+    column(metaData, 6, "credit", Types.DECIMAL);
+    column(metaData, 7, "debit", Types.DECIMAL);
+    column(metaData, 8, "timestamp", Types.TIMESTAMP);
+
+    CachedRowSet rowSet = RowSetProvider.newFactory().createCachedRowSet();
+    rowSet.setMetaData(metaData);
+    long transactionId = 1_000_000;
+    for (int account = 1; account <= accounts; account++) {
+      BigDecimal balance = BigDecimal.valueOf(random.nextInt(2_000_000), 2);
+      Timestamp lastStatementDate = new Timestamp(FIRST_TIMESTAMP - random.nextInt(30) * 86_400_000L);
+      for (int i = 0; i < transactionsPerAccount; i++) {
+        rowSet.moveToInsertRow();
+        rowSet.updateLong(1, account);
+        rowSet.updateBigDecimal(2, balance);
+        rowSet.updateTimestamp(3, lastStatementDate);
+        rowSet.updateLong(4, transactionId++);
+        rowSet.updateString(5, DESCRIPTIONS[random.nextInt(DESCRIPTIONS.length)]);
+        BigDecimal amount = BigDecimal.valueOf(random.nextInt(1_000_000) - 500_000, 2);
+        if (amount.signum() >= 0) {
+          rowSet.updateBigDecimal(6, amount);
+          rowSet.updateNull(7);
+        } else {
+          rowSet.updateNull(6);
+          rowSet.updateBigDecimal(7, amount);
+        }
+        rowSet.updateTimestamp(8, new Timestamp(FIRST_TIMESTAMP + random.nextInt(60 * 86_400) * 1000L));
+        rowSet.insertRow();
+      }
+    }
+    rowSet.moveToCurrentRow();
+    rowSet.beforeFirst();
+    return rowSet;
+  }
+
+  private static void column(RowSetMetaDataImpl metaData, int index, String name, int type) throws SQLException {
+    metaData.setColumnName(index, name);
+    metaData.setColumnLabel(index, name);
+    metaData.setColumnType(index, type);
+    metaData.setNullable(index, RowSetMetaDataImpl.columnNullable);
+  }
+}
@@ -0,0 +1,41 @@
+package com.bankstatement.batch.benchmark;
+
+import org.springframework.core.io.ClassPathResource;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+/***
+ * Seeded customer update lines, taken from the sample input/customer_update.csv so the record type mix and field lengths are real.
+ */
+public final class CustomerUpdateLines {
+
+  private CustomerUpdateLines() {
+  }
+
+  public static String[] create(int count, long seed) throws IOException {
+    List<String> sample = new ArrayList<>();
+    try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+      new ClassPathResource("input/customer_update.csv").getInputStream(), StandardCharsets.UTF_8))) {
+      String line;
+      while ((line = reader.readLine()) != null) {
+        if (!line.isEmpty()) {
+          sample.add(line);
+        }
+      }
+    }
+    Random random = new Random(seed);
+    Collections.shuffle(sample, random);
+    String[] lines = new String[count];
+    for (int i = 0; i < count; i++) {
+      lines[i] = sample.get(i % sample.size());
+    }
+    return lines;
+  }
+}
@@ -0,0 +1,82 @@
+package com.bankstatement.batch.benchmark;
+
+import com.bankstatement.batch.configs.CustomerUpdateFileItemReader;
+import com.bankstatement.batch.configuration.importJobConfiguration;
+import com.bankstatement.batch.domain.CustomerUpdate;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.batch.item.file.mapping.FieldSetMapper;
+import org.springframework.batch.item.file.transform.LineTokenizer;
+import org.springframework.core.io.ByteArrayResource;
+
+import java.nio.charset.StandardCharsets;
+
+/***
+ * Tokenizes and maps customer update lines with the customerUpdatesLineTokenizer and customerUpdateFieldSetMapper beans,
+ * the per line work of the importCustomerUpdates reader, against CustomerUpdateFileItemReader parsing the same lines as bytes.
+ * Scores and -prof gc allocation figures are per line.
+ */
+@State(Scope.Thread)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class CustomerUpdateMappingBenchmark {
+
+  private static final int LINES = 1024;
+
+  @Param("42")
+  private long seed;
+
+  private String[] lines;
+  private LineTokenizer tokenizer;
+  private FieldSetMapper<CustomerUpdate> mapper;
+  private byte[] file;
+
+  @Setup
+  public void setUp() throws Exception {
+    lines = CustomerUpdateLines.create(LINES, seed);
+    importJobConfiguration configuration = new importJobConfiguration();
+    tokenizer = configuration.customerUpdatesLineTokenizer();
+    mapper = configuration.customerUpdateFieldSetMapper();
+    file = (String.join("\n", lines) + "\n").getBytes(StandardCharsets.UTF_8);
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(LINES)
+  public void tokenizeAndMap(Blackhole blackhole) throws Exception {
+    for (String line : lines) {
+      blackhole.consume(mapper.mapFieldSet(tokenizer.tokenize(line)));
+    }
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(LINES)
+  public void byteReader(Blackhole blackhole) throws Exception {
+    CustomerUpdateFileItemReader reader = new CustomerUpdateFileItemReader();
+    reader.setResource(new ByteArrayResource(file));
+    reader.setSaveState(false);
+    reader.open(new ExecutionContext());
+    CustomerUpdate update;
+    while ((update = reader.read()) != null) {
+      blackhole.consume(update);
+    }
+    reader.close();
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(LINES)
+  public void tokenize(Blackhole blackhole) {
+    for (String line : lines) {
+      blackhole.consume(tokenizer.tokenize(line));
+    }
+  }
+}
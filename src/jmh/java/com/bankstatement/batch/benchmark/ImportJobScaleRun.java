@@ -0,0 +1,210 @@
+package com.bankstatement.batch.benchmark;
+
+import com.bankstatement.batch.BatchApplication;
+import org.springframework.batch.core.Job;
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.JobParameters;
+import org.springframework.batch.core.JobParametersBuilder;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.launch.JobLauncher;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.util.FileSystemUtils;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/***
+ * Runs customerImportJob end to end on generated scale data in an embedded HSQLDB and reports
+ * items/sec per step, wall time, peak heap and GC time.
+ *
+ * Harness options: --transactions (default 10000), --customers, --updates, --seed (default 42),
+ * --work-dir (default target/scale), --db=mem|file (file uses cached tables for runs that do not fit the heap)
+ * and --report, a CSV file every run appends one line per step to. Every other argument goes to the application,
+ * so configurations are compared by running the same data with different options, e.g.
+ *
+ *   ./mvnw -Pbenchmark compile exec:exec@scale \
+ *     -Dscale.args="--transactions=1000000 --report=target/scale/results.csv --bankstatement.apply.aggregate=true"
+ *
+ * Run it from the project directory, the job writes the statements under target/.
+ * The input files of a size and seed are generated once and reused by later runs.
+ */
+public class ImportJobScaleRun {
+
+  public static void main(String[] args) throws Exception {
+    Map<String, String> options = new LinkedHashMap<>();
+    options.put("transactions", "10000");
+    options.put("seed", "42");
+    options.put("work-dir", "target/scale");
+    options.put("db", "mem");
+    List<String> applicationArgs = new ArrayList<>();
+    for (String arg : args) {
+      String key = arg.startsWith("--") && arg.contains("=") ? arg.substring(2, arg.indexOf('=')) : null;
+      if (key != null && (options.containsKey(key) || key.equals("customers") || key.equals("updates") || key.equals("report"))) {
+        options.put(key, arg.substring(arg.indexOf('=') + 1));
+      } else {
+        applicationArgs.add(arg);
+      }
+    }
+
+    long transactions = Long.parseLong(options.get("transactions"));
+    long seed = Long.parseLong(options.get("seed"));
+    ScaleDataGenerator generator = options.containsKey("customers")
+      ? new ScaleDataGenerator(transactions, Long.parseLong(options.get("customers")),
+      Long.parseLong(options.getOrDefault("updates", Long.toString(Math.max(1, Long.parseLong(options.get("customers")) / 2)))), seed)
+      : new ScaleDataGenerator(transactions, seed);
+
+    Path workDirectory = Paths.get(options.get("work-dir")).toAbsolutePath();
+    Path inputDirectory = workDirectory.resolve(String.format("input-%d-%d-%d-%d",
+      generator.getTransactions(), generator.getCustomers(), generator.getUpdates(), seed));
+    if (!Files.exists(inputDirectory.resolve("complete"))) {
+      long start = System.nanoTime();
+      generator.writeInputFiles(inputDirectory);
+      Files.createFile(inputDirectory.resolve("complete"));
+      System.out.printf("Generated input files in %s in %d ms%n", inputDirectory, (System.nanoTime() - start) / 1_000_000);
+    }
+
+    List<String> springArgs = new ArrayList<>();
+    springArgs.add("--spring.datasource.url=" + databaseUrl(options.get("db"), workDirectory));
+    springArgs.add("--spring.datasource.driverClassName=org.hsqldb.jdbc.JDBCDriver");
+    springArgs.add("--spring.datasource.username=sa");
+    springArgs.add("--spring.datasource.password=");
+    // schema-hsqldb.sql, the tables with their indexes
+    springArgs.add("--spring.datasource.platform=hsqldb");
+    springArgs.add("--spring.datasource.continue-on-error=false");
+    // the fixtures replace the sample data of data-mysql.sql
+    springArgs.add("--spring.datasource.data=");
+    springArgs.add("--spring.batch.job.enabled=false");
+    springArgs.addAll(applicationArgs);
+
+    try (ConfigurableApplicationContext context = SpringApplication.run(BatchApplication.class, springArgs.toArray(new String[0]))) {
+      long start = System.nanoTime();
+      generator.loadFixtures(context.getBean(JdbcTemplate.class));
+      System.out.printf("Loaded %d customers and %d accounts in %d ms%n",
+        generator.getCustomers(), generator.getAccounts(), (System.nanoTime() - start) / 1_000_000);
+
+      JobParameters parameters = new JobParametersBuilder()
+        .addString("customerUpdateFile", inputDirectory.resolve(ScaleDataGenerator.CUSTOMER_UPDATE_FILE).toUri().toString())
+        .addString("transactionFile", inputDirectory.resolve(ScaleDataGenerator.TRANSACTION_FILE).toUri().toString())
+        .addLong("run.id", System.currentTimeMillis())
+        .toJobParameters();
+
+      System.gc();
+      List<MemoryPoolMXBean> heapPools = new ArrayList<>();
+      for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+        if (pool.getType() == MemoryType.HEAP) {
+          pool.resetPeakUsage();
+          heapPools.add(pool);
+        }
+      }
+      long gcCount = gcCount();
+      long gcTime = gcTime();
+      start = System.nanoTime();
+      JobExecution execution = context.getBean(JobLauncher.class).run(context.getBean(Job.class), parameters);
+      long wallMillis = (System.nanoTime() - start) / 1_000_000;
+
+      // the pools peak at different times, so their sum is an upper bound of the peak heap
+      long peakHeap = 0;
+      for (MemoryPoolMXBean pool : heapPools) {
+        peakHeap += pool.getPeakUsage().getUsed();
+      }
+      report(System.out, execution, wallMillis, peakHeap, gcCount() - gcCount, gcTime() - gcTime);
+      if (options.containsKey("report")) {
+        appendCsv(Paths.get(options.get("report")), String.join(" ", applicationArgs), generator, execution, wallMillis, peakHeap,
+          gcTime() - gcTime);
+      }
+    } finally {
+      if ("file".equals(options.get("db"))) {
+        FileSystemUtils.deleteRecursively(workDirectory.resolve("db"));
+      }
+    }
+  }
+
+  private static String databaseUrl(String db, Path workDirectory) throws IOException {
+    if ("mem".equals(db)) {
+      return "jdbc:hsqldb:mem:scale;sql.syntax_mys=true;hsqldb.tx=mvcc";
+    }
+    if ("file".equals(db)) {
+      Path database = workDirectory.resolve("db");
+      FileSystemUtils.deleteRecursively(database);
+      return "jdbc:hsqldb:file:" + database.resolve("scale") + ";sql.syntax_mys=true;hsqldb.tx=mvcc;hsqldb.default_table_type=cached;shutdown=true";
+    }
+    throw new IllegalArgumentException("Unknown --db: " + db + ", expected mem or file");
+  }
+
+  private static List<StepExecution> steps(JobExecution execution) {
+    List<StepExecution> steps = new ArrayList<>(execution.getStepExecutions());
+    steps.sort(Comparator.comparing(StepExecution::getStartTime).thenComparing(StepExecution::getStepName));
+    return steps;
+  }
+
+  private static void report(PrintStream out, JobExecution execution, long wallMillis, long peakHeap, long gcCount, long gcTime) {
+    out.println();
+    out.printf("%-40s %-10s %12s %12s %10s %14s%n", "Step", "Status", "Read", "Written", "Millis", "Items/sec");
+    for (StepExecution step : steps(execution)) {
+      long millis = millis(step);
+      out.printf("%-40s %-10s %12d %12d %10d %14.1f%n", step.getStepName(), step.getStatus(), step.getReadCount(),
+        step.getWriteCount(), millis, itemsPerSecond(step.getWriteCount(), millis));
+    }
+    out.printf("%nJob %s in %d ms, peak heap %d MB, %d collections taking %d ms%n",
+      execution.getStatus(), wallMillis, peakHeap >> 20, gcCount, gcTime);
+  }
+
+  private static void appendCsv(Path file, String configuration, ScaleDataGenerator generator, JobExecution execution,
+                                long wallMillis, long peakHeap, long gcTime) throws IOException {
+    List<String> lines = new ArrayList<>();
+    if (!Files.exists(file)) {
+      lines.add("configuration,transactions,customers,step,status,read,written,millis,items_per_sec,job_millis,peak_heap_mb,gc_millis");
+    }
+    for (StepExecution step : steps(execution)) {
+      long millis = millis(step);
+      lines.add(String.format("\"%s\",%d,%d,%s,%s,%d,%d,%d,%.1f,%d,%d,%d", configuration.replace("\"", "\"\""),
+        generator.getTransactions(), generator.getCustomers(), step.getStepName(), step.getStatus(), step.getReadCount(),
+        step.getWriteCount(), millis, itemsPerSecond(step.getWriteCount(), millis), wallMillis, peakHeap >> 20, gcTime));
+    }
+    if (file.getParent() != null) {
+      Files.createDirectories(file.getParent());
+    }
+    Files.write(file, lines, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+  }
+
+  private static long millis(StepExecution step) {
+    long end = step.getEndTime() != null ? step.getEndTime().getTime() : System.currentTimeMillis();
+    return end - step.getStartTime().getTime();
+  }
+
+  private static double itemsPerSecond(long items, long millis) {
+    return millis > 0 ? items * 1000.0 / millis : 0;
+  }
+
+  private static long gcCount() {
+    long count = 0;
+    for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+      count += Math.max(0, collector.getCollectionCount());
+    }
+    return count;
+  }
+
+  private static long gcTime() {
+    long time = 0;
+    for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+      time += Math.max(0, collector.getCollectionTime());
+    }
+    return time;
+  }
+}
@@ -0,0 +1,225 @@
+package com.bankstatement.batch.benchmark;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/***
+ * Deterministic scale data for customerImportJob: customer, account and customer_account fixtures
+ * and the matching customer_update.csv and transactions.xml input files.
+ * The defaults keep the shape of the sample data: two accounts per customer, about 20 transactions per account
+ * and one update record per two customers, with the sample mix of name, address and contact records.
+ * Every table and file has its own seed derived from the main seed, so the fixtures come out the same
+ * whether they are loaded straight into a database or written to CSV files first.
+ */
+public class ScaleDataGenerator {
+
+  public static final String CUSTOMER_UPDATE_FILE = "customer_update.csv";
+  public static final String TRANSACTION_FILE = "transactions.xml";
+
+  private static final int ACCOUNTS_PER_CUSTOMER = 2;
+  private static final int TRANSACTIONS_PER_ACCOUNT = 20;
+  private static final int BATCH_SIZE = 1000;
+  private static final long LAST_STATEMENT_DATE = Timestamp.valueOf("2018-05-01 00:00:00").getTime();
+
+  private static final String[] FIRST_NAMES = {"Gibbie", "Amanda", "Meade", "Cathyleen", "Holmes", "Franciska", "Dona", "Shina", "Rheta", "Obed"};
+  private static final String[] LAST_NAMES = {"Peiro", "Dudmarsh", "Troth", "Smaling", "Filyushkin", "Phelip", "Gallaccio", "Ickovitz"};
+  private static final String[] STREETS = {"Killdeer Way", "Knutson Parkway", "7th Lane", "Spenser Junction", "Charing Cross Junction",
+    "Thompson Place", "Truax Place", "Dennis Drive"};
+  private static final String[][] CITIES = {{"Hamilton", "Ohio"}, {"Washington", "District of Columbia"}, {"Irvine", "California"},
+    {"Houston", "Texas"}, {"Toledo", "Ohio"}, {"Jacksonville", "Florida"}, {"Cincinnati", "Ohio"}, {"Santa Barbara", "California"}};
+  private static final String[] EMAIL_DOMAINS = {"surveymonkey.com", "nih.gov", "google.com.au", "hao123.com", "cargocollective.com"};
+
+  private final long customers;
+  private final long accounts;
+  private final long transactions;
+  private final long updates;
+  private final long seed;
+
+  public ScaleDataGenerator(long transactions, long seed) {
+    this(transactions, Math.max(1, transactions / (ACCOUNTS_PER_CUSTOMER * TRANSACTIONS_PER_ACCOUNT)), seed);
+  }
+
+  public ScaleDataGenerator(long transactions, long customers, long seed) {
+    this(transactions, customers, Math.max(1, customers / 2), seed);
+  }
+
+  public ScaleDataGenerator(long transactions, long customers, long updates, long seed) {
+    this.customers = customers;
+    this.accounts = customers * ACCOUNTS_PER_CUSTOMER;
+    this.transactions = transactions;
+    this.updates = updates;
+    this.seed = seed;
+  }
+
+  public long getCustomers() {
+    return customers;
+  }
+
+  public long getAccounts() {
+    return accounts;
+  }
+
+  public long getTransactions() {
+    return transactions;
+  }
+
+  public long getUpdates() {
+    return updates;
+  }
+
+  /***
+   * Receives the fixture rows one at a time, in the column order of the table.
+   */
+  public interface RowHandler {
+    void row(Object... values) throws IOException;
+  }
+
+  public void customers(RowHandler handler) throws IOException {
+    Random random = new Random(seed);
+    for (long id = 1; id <= customers; id++) {
+      String firstName = pick(random, FIRST_NAMES);
+      String lastName = pick(random, LAST_NAMES);
+      String[] city = CITIES[random.nextInt(CITIES.length)];
+      handler.row(id, firstName, random.nextBoolean() ? pick(random, FIRST_NAMES) : null, lastName,
+        address(random), null, city[0], city[1], postalCode(random), ssn(random),
+        random.nextInt(4) == 0 ? null : email(random, firstName, lastName, id),
+        random.nextInt(3) == 0 ? phone(random) : null, phone(random), phone(random), 1 + random.nextInt(5));
+    }
+  }
+
+  public void accounts(RowHandler handler) throws IOException {
+    Random random = new Random(seed + 1);
+    for (long id = 1; id <= accounts; id++) {
+      handler.row(id, random.nextInt(5_000_000) / 100.0,
+        new Timestamp(LAST_STATEMENT_DATE + random.nextInt(30 * 86_400) * 1000L));
+    }
+  }
+
+  // customer n owns accounts 2n - 1 and 2n
+  public void customerAccounts(RowHandler handler) throws IOException {
+    for (long account = 1; account <= accounts; account++) {
+      handler.row((account + ACCOUNTS_PER_CUSTOMER - 1) / ACCOUNTS_PER_CUSTOMER, account);
+    }
+  }
+
+  public void writeCustomerUpdates(Path file) throws IOException {
+    Random random = new Random(seed + 2);
+    try (Writer writer = new BufferedWriter(Files.newBufferedWriter(file, StandardCharsets.UTF_8), 1 << 16)) {
+      for (long i = 0; i < updates; i++) {
+        long customerId = 1 + (long) (random.nextDouble() * customers);
+        int recordType = random.nextInt(100);
+        if (recordType < 16) {
+          writer.write("1," + customerId + "," + pick(random, FIRST_NAMES) + ",," + pick(random, LAST_NAMES));
+        } else if (recordType < 82) {
+          String[] city = CITIES[random.nextInt(CITIES.length)];
+          writer.write("2," + customerId + "," + address(random) + ",," + city[0] + "," + city[1] + "," + postalCode(random));
+        } else {
+          writer.write("3," + customerId + "," + (random.nextBoolean() ? email(random, "update", "customer", customerId) : "")
+            + ",," + phone(random) + "," + phone(random) + "," + (1 + random.nextInt(5)));
+        }
+        writer.write('\n');
+      }
+    }
+  }
+
+  public void writeTransactions(Path file) throws IOException {
+    Random random = new Random(seed + 3);
+    try (Writer writer = new BufferedWriter(Files.newBufferedWriter(file, StandardCharsets.UTF_8), 1 << 16)) {
+      writer.write("<?xml version='1.0' encoding='UTF-8'?>\n<transactions>\n");
+      for (long i = 1; i <= transactions; i++) {
+        TransactionFiles.writeTransaction(writer, i, 1 + (long) (random.nextDouble() * accounts), random);
+      }
+      writer.write("</transactions>\n");
+    }
+  }
+
+  public void writeInputFiles(Path directory) throws IOException {
+    Files.createDirectories(directory);
+    writeCustomerUpdates(directory.resolve(CUSTOMER_UPDATE_FILE));
+    writeTransactions(directory.resolve(TRANSACTION_FILE));
+  }
+
+  /***
+   * Writes customer.csv, account.csv and customer_account.csv, for LOAD DATA INFILE into MySQL. Nulls are written as \N.
+   */
+  public void writeFixtures(Path directory) throws IOException {
+    Files.createDirectories(directory);
+    writeCsv(directory.resolve("customer.csv"), this::customers);
+    writeCsv(directory.resolve("account.csv"), this::accounts);
+    writeCsv(directory.resolve("customer_account.csv"), this::customerAccounts);
+  }
+
+  public void loadFixtures(JdbcTemplate jdbcTemplate) throws IOException {
+    load(jdbcTemplate, "insert into customer (customer_id, first_name, middle_name, last_name, address1, address2, city, state, "
+      + "postal_code, ssn, email_address, home_phone, cell_phone, work_phone, notification_pref) "
+      + "values (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)", this::customers);
+    load(jdbcTemplate, "insert into account (account_id, balance, last_statement_date) values (?, ?, ?)", this::accounts);
+    load(jdbcTemplate, "insert into customer_account (customer_customer_id, account_account_id) values (?, ?)", this::customerAccounts);
+  }
+
+  private interface Rows {
+    void generate(RowHandler handler) throws IOException;
+  }
+
+  private static void load(JdbcTemplate jdbcTemplate, String sql, Rows rows) throws IOException {
+    List<Object[]> batch = new ArrayList<>(BATCH_SIZE);
+    rows.generate(values -> {
+      batch.add(values);
+      if (batch.size() == BATCH_SIZE) {
+        jdbcTemplate.batchUpdate(sql, batch);
+        batch.clear();
+      }
+    });
+    if (!batch.isEmpty()) {
+      jdbcTemplate.batchUpdate(sql, batch);
+    }
+  }
+
+  private static void writeCsv(Path file, Rows rows) throws IOException {
+    try (Writer writer = new BufferedWriter(Files.newBufferedWriter(file, StandardCharsets.UTF_8), 1 << 16)) {
+      rows.generate(values -> {
+        for (int i = 0; i < values.length; i++) {
+          if (i > 0) {
+            writer.write(',');
+          }
+          writer.write(values[i] == null ? "\\N" : values[i].toString());
+        }
+        writer.write('\n');
+      });
+    }
+  }
+
+  private static String pick(Random random, String[] values) {
+    return values[random.nextInt(values.length)];
+  }
+
+  private static String address(Random random) {
+    return (1 + random.nextInt(99_999)) + " " + pick(random, STREETS);
+  }
+
+  private static String postalCode(Random random) {
+    return String.format("%05d", random.nextInt(100_000));
+  }
+
+  private static String ssn(Random random) {
+    return String.format("%03d-%02d-%04d", random.nextInt(1000), random.nextInt(100), random.nextInt(10_000));
+  }
+
+  private static String phone(Random random) {
+    return String.format("%03d-%03d-%04d", 200 + random.nextInt(800), random.nextInt(1000), random.nextInt(10_000));
+  }
+
+  private static String email(Random random, String firstName, String lastName, long id) {
+    return Character.toLowerCase(firstName.charAt(0)) + lastName.toLowerCase() + id + "@" + pick(random, EMAIL_DOMAINS);
+  }
+}
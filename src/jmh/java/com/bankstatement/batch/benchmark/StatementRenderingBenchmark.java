@@ -0,0 +1,54 @@
+package com.bankstatement.batch.benchmark;
+
+import com.bankstatement.batch.configs.StatementLineAggregator;
+import com.bankstatement.batch.configs.StatementRenderer;
+import com.bankstatement.batch.domain.Statement;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.CharArrayWriter;
+import java.io.IOException;
+
+/***
+ * Writes one statement to a reused Writer, through StatementLineAggregator (a String per statement, like FlatFileItemWriter)
+ * and through StatementRenderer. Run with -prof gc to compare the garbage per statement.
+ */
+@State(Scope.Thread)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class StatementRenderingBenchmark {
+
+  @Param({"10", "10000"})
+  private int transactionsPerAccount;
+
+  private Statement statement;
+  private final StatementLineAggregator aggregator = new StatementLineAggregator();
+  private final StatementRenderer renderer = new StatementRenderer();
+  private final CharArrayWriter output = new CharArrayWriter(1 << 20);
+
+  @Setup
+  public void setUp() {
+    statement = Statements.create(2, transactionsPerAccount, 42);
+  }
+
+  @Benchmark
+  public int lineAggregator() throws IOException {
+    output.reset();
+    output.write(aggregator.aggregate(statement));
+    return output.size();
+  }
+
+  @Benchmark
+  public int renderer() throws IOException {
+    output.reset();
+    renderer.render(statement, output);
+    return output.size();
+  }
+}
@@ -0,0 +1,51 @@
+package com.bankstatement.batch.benchmark;
+
+import com.bankstatement.batch.domain.Account;
+import com.bankstatement.batch.domain.Customer;
+import com.bankstatement.batch.domain.Statement;
+import com.bankstatement.batch.domain.Transaction;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/***
+ * Builds seeded statements shaped like the ones AccountItemProcessor produces.
+ */
+public final class Statements {
+
+  private static final long FIRST_TIMESTAMP = Timestamp.valueOf("2018-06-01 00:00:00").getTime();
+  private static final String[] DESCRIPTIONS = {"Skinix", "Mydeo", "Quinu", "Buzzbean", "Skibox", "Dynava", "Voonyx", "Zoomzone"};
+
+  private Statements() {
+  }
+
+  public static Statement create(int accounts, int transactionsPerAccount, long seed) {
+    Random random = new Random(seed);
+    Customer customer = new Customer(1, "Gibbie", "Holmes", "Peiro", "131 Killdeer Way", null, "Hamilton", "Ohio",
+      "28815", "693-26-6169", "hpeiro0@surveymonkey.com", null, "828-660-5816", "763-497-5789", 2);
+
+    List<Account> accountList = new ArrayList<>(accounts);
+    long transactionId = 1;
+    for (int a = 0; a < accounts; a++) {
+      Account account = new Account(a + 1, BigDecimal.valueOf(random.nextInt(2_000_000), 2),
+        new Timestamp(FIRST_TIMESTAMP - random.nextInt(30) * 86_400_000L));
+      for (int i = 0; i < transactionsPerAccount; i++) {
+        account.addTransaction(transaction(transactionId++, a + 1, random));
+      }
+      accountList.add(account);
+    }
+    return new Statement(customer, accountList);
+  }
+
+  public static Transaction transaction(long transactionId, long accountId, Random random) {
+    BigDecimal amount = BigDecimal.valueOf(random.nextInt(1_000_000) - 500_000, 2);
+    return new Transaction(transactionId, accountId,
+      DESCRIPTIONS[random.nextInt(DESCRIPTIONS.length)],
+      amount.signum() >= 0 ? amount : null,
+      amount.signum() < 0 ? amount : null,
+      new Timestamp(FIRST_TIMESTAMP + random.nextInt(30 * 86_400) * 1000L));
+  }
+}
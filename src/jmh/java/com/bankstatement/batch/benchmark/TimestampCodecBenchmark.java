@@ -0,0 +1,69 @@
+package com.bankstatement.batch.benchmark;
+
+import com.bankstatement.batch.configs.TimestampCodec;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Random;
+
+/***
+ * Timestamp parsing and short date formatting with SimpleDateFormat/String.format against TimestampCodec.
+ * The timestamps come in runs of the same second, like the transaction files.
+ */
+@State(Scope.Thread)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class TimestampCodecBenchmark {
+
+  private static final int TIMESTAMPS = 1024;
+
+  private final String[] timestamps = new String[TIMESTAMPS];
+  private final Date[] dates = new Date[TIMESTAMPS];
+  private final SimpleDateFormat simpleDateFormat = new SimpleDateFormat(TimestampCodec.PATTERN);
+  private final TimestampCodec codec = TimestampCodec.systemDefault();
+  private int next;
+
+  @Setup
+  public void setUp() {
+    Random random = new Random(42);
+    for (int i = 0; i < TIMESTAMPS; i++) {
+      // runs of eight transactions share a timestamp
+      int second = (i / 8) * 37 + random.nextInt(2);
+      timestamps[i] = String.format("2018-06-%02d %02d:%02d:%02d", 1 + second / 86_400 % 28, second / 3600 % 24, second / 60 % 60, second % 60);
+      dates[i] = codec.parse(timestamps[i]);
+    }
+  }
+
+  private int nextIndex() {
+    return next++ & (TIMESTAMPS - 1);
+  }
+
+  @Benchmark
+  public Date simpleDateFormatParse() throws ParseException {
+    return simpleDateFormat.parse(timestamps[nextIndex()]);
+  }
+
+  @Benchmark
+  public Date codecParse() {
+    return codec.parse(timestamps[nextIndex()]);
+  }
+
+  @Benchmark
+  public String stringFormatShortDate() {
+    return String.format("%tD", dates[nextIndex()]);
+  }
+
+  @Benchmark
+  public String codecShortDate() {
+    return codec.formatShortDate(dates[nextIndex()]);
+  }
+}
@@ -0,0 +1,100 @@
+package com.bankstatement.batch.benchmark;
+
+import com.bankstatement.batch.configs.Money;
+import com.bankstatement.batch.domain.Transaction;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.math.BigDecimal;
+import java.util.Random;
+
+/***
+ * Transaction.getTransactionAmount over a seeded mix of credit only and debit only transactions,
+ * with a few that carry both or neither like the hand edited rows of the sample data. Scores are per transaction.
+ * The sum benchmarks total the credits and debits like the statement renderers do, once with BigDecimal.add
+ * and once with the cents of Money.
+ */
+@State(Scope.Thread)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class TransactionAmountBenchmark {
+
+  private static final int TRANSACTIONS = 1024;
+
+  @Param("42")
+  private long seed;
+
+  private final Transaction[] transactions = new Transaction[TRANSACTIONS];
+
+  @Setup
+  public void setUp() {
+    Random random = new Random(seed);
+    for (int i = 0; i < TRANSACTIONS; i++) {
+      Transaction transaction = Statements.transaction(i + 1, 1 + random.nextInt(1000), random);
+      int shape = random.nextInt(100);
+      if (shape == 0) {
+        transaction.setCredit(null);
+        transaction.setDebit(null);
+      } else if (shape == 1) {
+        transaction.setCredit(BigDecimal.valueOf(random.nextInt(100_000), 2));
+        transaction.setDebit(BigDecimal.valueOf(-random.nextInt(100_000), 2));
+      }
+      transactions[i] = transaction;
+    }
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(TRANSACTIONS)
+  public void transactionAmount(Blackhole blackhole) {
+    for (Transaction transaction : transactions) {
+      blackhole.consume(transaction.getTransactionAmount());
+    }
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(TRANSACTIONS)
+  public void transactionAmountCents(Blackhole blackhole) {
+    for (Transaction transaction : transactions) {
+      blackhole.consume(transaction.getTransactionAmountCents());
+    }
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(TRANSACTIONS)
+  public void sumBigDecimal(Blackhole blackhole) {
+    BigDecimal creditAmount = new BigDecimal(0);
+    BigDecimal debitAmount = new BigDecimal(0);
+    for (Transaction transaction : transactions) {
+      if (transaction.getCredit() != null) {
+        creditAmount = creditAmount.add(transaction.getCredit());
+      }
+      if (transaction.getDebit() != null) {
+        debitAmount = debitAmount.add(transaction.getDebit());
+      }
+    }
+    blackhole.consume(creditAmount);
+    blackhole.consume(debitAmount);
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(TRANSACTIONS)
+  public void sumCents(Blackhole blackhole) {
+    long creditCents = 0;
+    long debitCents = 0;
+    for (Transaction transaction : transactions) {
+      creditCents = Money.add(creditCents, transaction.getCreditCents());
+      debitCents = Money.add(debitCents, transaction.getDebitCents());
+    }
+    blackhole.consume(creditCents);
+    blackhole.consume(debitCents);
+  }
+}
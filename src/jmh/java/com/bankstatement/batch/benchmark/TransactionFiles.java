@@ -0,0 +1,59 @@
+package com.bankstatement.batch.benchmark;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Random;
+
+/***
+ * Writes seeded transaction files in the transactions.xml format.
+ */
+public final class TransactionFiles {
+
+  private static final DateTimeFormatter TIMESTAMP = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+  private static final LocalDateTime FIRST_TIMESTAMP = LocalDateTime.of(2018, 6, 1, 0, 0);
+  private static final String[] DESCRIPTIONS = {"Skinix", "Mydeo", "Quinu", "Buzzbean", "Skibox", "Dynava", "Voonyx", "Zoomzone"};
+
+  private TransactionFiles() {
+  }
+
+  public static Path write(Path file, long transactions, long firstTransactionId, int accounts, long seed) throws IOException {
+    Random random = new Random(seed);
+    try (Writer writer = new BufferedWriter(Files.newBufferedWriter(file, StandardCharsets.UTF_8), 1 << 16)) {
+      writer.write("<?xml version='1.0' encoding='UTF-8'?>\n<transactions>\n");
+      for (long i = 0; i < transactions; i++) {
+        writeTransaction(writer, firstTransactionId + i, 1 + random.nextInt(accounts), random);
+      }
+      writer.write("</transactions>\n");
+    }
+    return file;
+  }
+
+  static void writeTransaction(Writer writer, long transactionId, long accountId, Random random) throws IOException {
+    int amount = random.nextInt(1_000_000) - 500_000;
+    String value = (amount / 100) + "." + String.format("%02d", Math.abs(amount % 100));
+    if (amount < 0 && amount / 100 == 0) {
+      value = "-" + value;
+    }
+    writer.write("\t<transaction>\n\t\t<transactionId>");
+    writer.write(Long.toString(transactionId));
+    writer.write("</transactionId>\n\t\t<accountId>");
+    writer.write(Long.toString(accountId));
+    writer.write("</accountId>\n\t\t<description>");
+    writer.write(DESCRIPTIONS[random.nextInt(DESCRIPTIONS.length)]);
+    writer.write("</description>\n");
+    if (amount >= 0) {
+      writer.write("\t\t<credit>" + value + "</credit>\n\t\t<debit/>\n");
+    } else {
+      writer.write("\t\t<credit/>\n\t\t<debit>" + value + "</debit>\n");
+    }
+    writer.write("\t\t<timestamp>");
+    writer.write(TIMESTAMP.format(FIRST_TIMESTAMP.plusSeconds(random.nextInt(30 * 86_400))));
+    writer.write("</timestamp>\n\t</transaction>\n");
+  }
+}
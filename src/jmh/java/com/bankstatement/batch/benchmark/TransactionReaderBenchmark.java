@@ -0,0 +1,89 @@
+package com.bankstatement.batch.benchmark;
+
+import com.bankstatement.batch.configs.TransactionXmlItemReader;
+import com.bankstatement.batch.domain.Transaction;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.batch.item.ItemStreamReader;
+import org.springframework.batch.item.xml.builder.StaxEventItemReaderBuilder;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.oxm.jaxb.Jaxb2Marshaller;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/***
+ * Reads a whole generated transaction file with the JAXB based StaxEventItemReader and with TransactionXmlItemReader.
+ * The default file is small enough for a quick run, use -p transactions=10000000 for the 10M transaction comparison.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+public class TransactionReaderBenchmark {
+
+  @Param("100000")
+  private long transactions;
+
+  private Path file;
+  private Jaxb2Marshaller unmarshaller;
+
+  @Setup(Level.Trial)
+  public void setUp() throws Exception {
+    file = TransactionFiles.write(Files.createTempFile("transactions", ".xml"), transactions, 1, 1000, 42);
+    unmarshaller = new Jaxb2Marshaller();
+    unmarshaller.setClassesToBeBound(Transaction.class);
+    unmarshaller.afterPropertiesSet();
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() throws Exception {
+    Files.deleteIfExists(file);
+  }
+
+  @Benchmark
+  public long jaxbReader() throws Exception {
+    return readAll(new StaxEventItemReaderBuilder<Transaction>()
+      .name("jaxbReader")
+      .resource(new FileSystemResource(file))
+      .addFragmentRootElements("transaction")
+      .unmarshaller(unmarshaller)
+      .build());
+  }
+
+  @Benchmark
+  public long streamReader() throws Exception {
+    TransactionXmlItemReader reader = new TransactionXmlItemReader();
+    reader.setResource(new FileSystemResource(file));
+    return readAll(reader);
+  }
+
+  private static long readAll(ItemStreamReader<Transaction> reader) throws Exception {
+    reader.open(new ExecutionContext());
+    long sum = 0;
+    try {
+      Transaction transaction;
+      while ((transaction = reader.read()) != null) {
+        sum += transaction.getAccountId();
+      }
+    } finally {
+      reader.close();
+    }
+    return sum;
+  }
+}
@@ -0,0 +1,70 @@
+package com.bankstatement.batch.benchmark;
+
+import com.bankstatement.batch.domain.Transaction;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.oxm.jaxb.Jaxb2Marshaller;
+
+import javax.xml.bind.JAXBContext;
+import javax.xml.bind.Unmarshaller;
+import javax.xml.transform.stream.StreamSource;
+import java.io.ByteArrayInputStream;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+/***
+ * JAXB unmarshalling of single transaction fragments, the per item work of the JAXB based transaction reader.
+ * jaxb2Marshaller goes through Jaxb2Marshaller like StaxEventItemReader does, creating an Unmarshaller per fragment;
+ * reusedUnmarshaller shows what is left when the Unmarshaller is kept.
+ */
+@State(Scope.Thread)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class TransactionUnmarshalBenchmark {
+
+  private static final int FRAGMENTS = 1024;
+
+  @Param("42")
+  private long seed;
+
+  private final byte[][] fragments = new byte[FRAGMENTS][];
+  private Jaxb2Marshaller marshaller;
+  private Unmarshaller unmarshaller;
+  private int next;
+
+  @Setup
+  public void setUp() throws Exception {
+    Random random = new Random(seed);
+    for (int i = 0; i < FRAGMENTS; i++) {
+      StringWriter fragment = new StringWriter();
+      TransactionFiles.writeTransaction(fragment, i + 1, 1 + random.nextInt(1000), random);
+      fragments[i] = fragment.toString().getBytes(StandardCharsets.UTF_8);
+    }
+    marshaller = new Jaxb2Marshaller();
+    marshaller.setClassesToBeBound(Transaction.class);
+    marshaller.afterPropertiesSet();
+    unmarshaller = JAXBContext.newInstance(Transaction.class).createUnmarshaller();
+  }
+
+  private StreamSource nextFragment() {
+    return new StreamSource(new ByteArrayInputStream(fragments[next++ & (FRAGMENTS - 1)]));
+  }
+
+  @Benchmark
+  public Object jaxb2Marshaller() {
+    return marshaller.unmarshal(nextFragment());
+  }
+
+  @Benchmark
+  public Object reusedUnmarshaller() throws Exception {
+    return unmarshaller.unmarshal(nextFragment());
+  }
+}
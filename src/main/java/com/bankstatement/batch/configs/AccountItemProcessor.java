@@ -1,46 +1,194 @@
 package com.bankstatement.batch.configs;
 
 import com.bankstatement.batch.domain.Statement;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.batch.core.ExitStatus;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.StepExecutionListener;
+import org.springframework.batch.item.ExecutionContext;
 import org.springframework.batch.item.ItemProcessor;
+import org.springframework.batch.support.DatabaseType;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.support.MetaDataAccessException;
 import org.springframework.stereotype.Component;
 
+import java.sql.Timestamp;
+
 @Component
 //here we will be getting each customer object form database
 //the statement class has the customer object in it
 // in here we fetch all the accounts and respective transactions
-public class AccountItemProcessor implements ItemProcessor<Statement, Statement> {
+// for incremental statements only the transactions of the statement period are fetched, see StatementPeriodTasklet
+// customers with more than streamingThreshold transactions are not loaded, their statements are marked as streamed
+// and the writer renders them straight from the rows of streamAccountRows
+public class AccountItemProcessor implements ItemProcessor<Statement, Statement>, StepExecutionListener, AccountRowSource {
+
+  private static final Logger logger = LoggerFactory.getLogger(AccountItemProcessor.class);
+
+  protected static final String SELECT_ACCOUNTS = "select a.account_id," +
+    "       a.balance," +
+    "       a.last_statement_date," +
+    "       t.transaction_id," +
+    "       t.description," +
+    "       t.credit," +
+    "       t.debit," +
+    "       t.timestamp " +
+    "from account a left join " +  //MYSQL
+    "    transaction t on a.account_id = t.account_account_id " +
+    "where a.account_id in " +
+    "	(select account_account_id " +
+    "	from customer_account " +
+    "	where customer_customer_id = ?) " +
+    "order by t.timestamp";
+
+  protected static final String SELECT_PERIOD_ACCOUNTS = "select a.account_id," +
+    "       a.balance," +
+    "       a.last_statement_date," +
+    "       t.transaction_id," +
+    "       t.description," +
+    "       t.credit," +
+    "       t.debit," +
+    "       t.timestamp " +
+    "from account a left join " +
+    "    transaction t on a.account_id = t.account_account_id and " + StatementPeriodTasklet.TRANSACTION_IN_PERIOD + " " +
+    "where a.account_id in " +
+    "	(select account_account_id " +
+    "	from customer_account " +
+    "	where customer_customer_id = ?) " +
+    "order by t.timestamp";
+
+  protected static final String SELECT_STREAMED_CUSTOMERS = "select ca.customer_customer_id " +
+    "from customer_account ca " +
+    "join account a on a.account_id = ca.account_account_id " +
+    "join transaction t on t.account_account_id = a.account_id ";
+
+  // a customer linked to the same account twice still gets each transaction once, as in SELECT_ACCOUNTS
+  protected static final String HAVING_MORE_TRANSACTIONS = "group by ca.customer_customer_id having count(distinct t.transaction_id) > ?";
+
+  protected static final String COUNT_CUSTOMER_IDS = "SELECT MAX(customer_id), COUNT(*) FROM CUSTOMER";
+
+  // rows fetched per round trip while streaming, MySQL only streams with Integer.MIN_VALUE
+  private static final int STREAMING_FETCH_SIZE = 1000;
 
   @Autowired
   private final JdbcTemplate jdbcTemplate;
 
-  public AccountItemProcessor(JdbcTemplate jdbcTemplate) {
+  private final long streamingThreshold;
+
+  private final AccountResultSetExtractor accountResultSetExtractor = new AccountResultSetExtractor();
+
+  // time of the account and transaction query per customer, reported when bankstatement.metrics is enabled
+  private final Timer accountQueryTimer = Metrics.timer("bankstatement.statement.account.query");
+  private final Counter streamedCounter = Metrics.counter("bankstatement.statement.streamed");
+
+  // the same for every step of a job, the workers of a partitioned step share the processor, so only job state goes here
+  private volatile Timestamp periodEnd;
+  private volatile CustomerIdBitmap streamedCustomerIds;
+  private Long streamedCustomersJobExecutionId;
+  private volatile JdbcTemplate streamingJdbcTemplate;
+
+  public AccountItemProcessor(JdbcTemplate jdbcTemplate,
+                              @Value("${bankstatement.statement.streaming-threshold:0}") long streamingThreshold) {
     this.jdbcTemplate = jdbcTemplate;
+    this.streamingThreshold = streamingThreshold;
+  }
+
+  @Override
+  public void beforeStep(StepExecution stepExecution) {
+    ExecutionContext jobContext = stepExecution.getJobExecution().getExecutionContext();
+    periodEnd = jobContext.containsKey(StatementPeriodTasklet.PERIOD_END)
+      ? new Timestamp(jobContext.getLong(StatementPeriodTasklet.PERIOD_END)) : null;
+    if (streamingThreshold > 0) {
+      findStreamedCustomers(stepExecution.getJobExecutionId());
+    }
+  }
+
+  // one grouped query per job, the worker steps of a partitioned step reuse its result
+  private synchronized void findStreamedCustomers(Long jobExecutionId) {
+    if (jobExecutionId != null && jobExecutionId.equals(streamedCustomersJobExecutionId)) {
+      return;
+    }
+    CustomerIdBitmap ids = jdbcTemplate.queryForObject(COUNT_CUSTOMER_IDS,
+      (rs, rowNum) -> new CustomerIdBitmap(rs.getLong(1), rs.getLong(2)));
+    Timestamp periodEnd = this.periodEnd;
+    if (periodEnd != null) {
+      jdbcTemplate.query(SELECT_STREAMED_CUSTOMERS + "where " + StatementPeriodTasklet.TRANSACTION_IN_PERIOD + " " +
+        HAVING_MORE_TRANSACTIONS, rs -> {
+        ids.add(rs.getLong(1));
+      }, periodEnd, streamingThreshold);
+    } else {
+      jdbcTemplate.query(SELECT_STREAMED_CUSTOMERS + HAVING_MORE_TRANSACTIONS, rs -> {
+        ids.add(rs.getLong(1));
+      }, streamingThreshold);
+    }
+    streamedCustomerIds = ids;
+    streamedCustomersJobExecutionId = jobExecutionId;
+    logger.info("{} customers have more than {} transactions, their statements are streamed", ids.size(), streamingThreshold);
+  }
+
+  @Override
+  public ExitStatus afterStep(StepExecution stepExecution) {
+    return stepExecution.getExitStatus();
   }
 
   @Override
   public Statement process(Statement statement) throws Exception {
-    statement.setAccounts(this.jdbcTemplate.query(
-      "select a.account_id," +
-        "       a.balance," +
-        "       a.last_statement_date," +
-        "       t.transaction_id," +
-        "       t.description," +
-        "       t.credit," +
-        "       t.debit," +
-        "       t.timestamp " +
-				"from account a left join " +  //MYSQL
-				"    transaction t on a.account_id = t.account_account_id " +
-        "where a.account_id in " +
-        "	(select account_account_id " +
-        "	from customer_account " +
-        "	where customer_customer_id = ?) " +
-        "order by t.timestamp",
+    CustomerIdBitmap streamedCustomerIds = this.streamedCustomerIds;
+    if (streamingThreshold > 0 && streamedCustomerIds != null && streamedCustomerIds.contains(statement.getCustomer().getId())) {
+      statement.setStreamed(true);
+      streamedCounter.increment();
+      return statement;
+    }
+    Timestamp periodEnd = this.periodEnd;
+    if (periodEnd != null) {
+      statement.setAccounts(accountQueryTimer.recordCallable(() -> this.jdbcTemplate.query(SELECT_PERIOD_ACCOUNTS,
+        new Object[]{periodEnd, statement.getCustomer().getId()}, accountResultSetExtractor)));
+      return statement;
+    }
+    statement.setAccounts(accountQueryTimer.recordCallable(() -> this.jdbcTemplate.query(SELECT_ACCOUNTS,
       new Object[]{statement.getCustomer().getId()},
 //      We’ll use a ResultSetExtractor because the query we’ll be running results
 //      in a parent child relationship with one account having many transactions.
-      new AccountResultSetExtractor()));
+      accountResultSetExtractor)));
     return statement;
   }
+
+  /***
+   * Runs the account query of a streamed statement with a fetch size, every row is handed to the rowHandler
+   * as it arrives instead of being collected into Accounts.
+   */
+  @Override
+  public void streamAccountRows(Statement statement, RowCallbackHandler rowHandler) {
+    Timestamp periodEnd = this.periodEnd;
+    if (periodEnd != null) {
+      streamingJdbcTemplate().query(SELECT_PERIOD_ACCOUNTS, rowHandler, periodEnd, statement.getCustomer().getId());
+    } else {
+      streamingJdbcTemplate().query(SELECT_ACCOUNTS, rowHandler, statement.getCustomer().getId());
+    }
+  }
+
+  private JdbcTemplate streamingJdbcTemplate() {
+    JdbcTemplate template = streamingJdbcTemplate;
+    if (template == null) {
+      template = new JdbcTemplate(jdbcTemplate.getDataSource());
+      template.setFetchSize(isMySql() ? Integer.MIN_VALUE : STREAMING_FETCH_SIZE);
+      streamingJdbcTemplate = template;
+    }
+    return template;
+  }
+
+  private boolean isMySql() {
+    try {
+      return DatabaseType.fromMetaData(jdbcTemplate.getDataSource()) == DatabaseType.MYSQL;
+    } catch (MetaDataAccessException | IllegalArgumentException e) {
+      return false;
+    }
+  }
 }
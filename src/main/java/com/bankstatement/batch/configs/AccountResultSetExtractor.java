@@ -9,48 +9,56 @@ import org.springframework.util.StringUtils;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.ArrayList;
-import java.util.Date;
 import java.util.List;
 
 // we have a parent child relationship between Accounts and Transactions.
 // Account class has List of Transactions.
 // This control is then passed to the itemWriter
+// The extractor keeps no state between calls, so one instance can be shared by every thread.
 public class AccountResultSetExtractor implements ResultSetExtractor<List<Account>> {
 
-  private List<Account> accounts = new ArrayList<>();
-  private Account curAccount;
+  // most customers have one or two accounts
+  private static final int EXPECTED_ACCOUNTS = 4;
 
   @Override
   public List<Account> extractData(ResultSet rs) throws SQLException, DataAccessException {
+    // column labels are resolved once per ResultSet instead of once per row
+    int accountIdColumn = rs.findColumn("account_id");
+    int balanceColumn = rs.findColumn("balance");
+    int lastStatementDateColumn = rs.findColumn("last_statement_date");
+    int transactionIdColumn = rs.findColumn("transaction_id");
+    int descriptionColumn = rs.findColumn("description");
+    int creditColumn = rs.findColumn("credit");
+    int debitColumn = rs.findColumn("debit");
+    int timestampColumn = rs.findColumn("timestamp");
+
+    List<Account> accounts = new ArrayList<>(EXPECTED_ACCOUNTS);
+    Account curAccount = null;
+
     while (rs.next()) {
-      if (curAccount == null) {
+      long accountId = rs.getLong(accountIdColumn);
+      if (curAccount == null || accountId != curAccount.getId()) {
         curAccount = new Account(
-          rs.getLong("account_id"),
-          rs.getBigDecimal("balance"),
-          rs.getDate("last_statement_date"));
-      } else if (rs.getLong("account_id") != curAccount.getId()) {
+          accountId,
+          rs.getBigDecimal(balanceColumn),
+          rs.getDate(lastStatementDateColumn));
         accounts.add(curAccount);
-        curAccount = new Account(
-          rs.getLong("account_id"),
-          rs.getBigDecimal("balance"),
-          rs.getDate("last_statement_date"));
       }
 
       //description is coming from Transactions
-      if (StringUtils.hasText(rs.getString("description"))) {
+      String description = rs.getString(descriptionColumn);
+      if (StringUtils.hasText(description)) {
+        // a Timestamp is a Date, no need to copy it into a new one
         curAccount.addTransaction(
-          new Transaction(rs.getLong("transaction_id"),
-            rs.getLong("account_id"),
-            rs.getString("description"),
-            rs.getBigDecimal("credit"),
-            rs.getBigDecimal("debit"),
-            new Date(rs.getTimestamp("timestamp").getTime())));
+          new Transaction(rs.getLong(transactionIdColumn),
+            accountId,
+            description,
+            rs.getBigDecimal(creditColumn),
+            rs.getBigDecimal(debitColumn),
+            rs.getTimestamp(timestampColumn)));
       }
     }
 
-    if (curAccount != null) {
-      accounts.add(curAccount);
-    }
     return accounts;
 //    results are returned to the itemProcessor
   }
@@ -0,0 +1,13 @@
+package com.bankstatement.batch.configs;
+
+import com.bankstatement.batch.domain.Statement;
+import org.springframework.jdbc.core.RowCallbackHandler;
+
+/***
+ * Streams the account and transaction rows of a streamed statement, in the order and with the columns of the
+ * account query of AccountItemProcessor, so that StatementRenderer can render them without loading the accounts.
+ */
+public interface AccountRowSource {
+
+  void streamAccountRows(Statement statement, RowCallbackHandler rowHandler);
+}
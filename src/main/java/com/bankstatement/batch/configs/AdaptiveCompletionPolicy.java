@@ -0,0 +1,195 @@
+package com.bankstatement.batch.configs;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.batch.core.ChunkListener;
+import org.springframework.batch.core.ExitStatus;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.StepExecutionListener;
+import org.springframework.batch.core.scope.context.ChunkContext;
+import org.springframework.batch.repeat.RepeatContext;
+import org.springframework.batch.repeat.RepeatStatus;
+import org.springframework.batch.repeat.context.RepeatContextSupport;
+import org.springframework.batch.repeat.policy.CompletionPolicySupport;
+import org.springframework.util.Assert;
+
+import java.time.Duration;
+
+/***
+ * Chunk completion policy that tunes the commit interval while the step runs, within min and max bounds.
+ * It has to be registered as a chunk and step listener of the step as well.
+ *
+ * Every chunk is timed from beforeChunk to afterChunk, so the time includes the commit. After a window of at least
+ * three chunks and a tenth of the target time, the throughput of the window is compared with the previous one:
+ * the size keeps moving in the same direction while the throughput improves, turns around when it drops
+ * and stays where it is while it is flat.
+ * Chunks taking longer than the target time always shrink the size, that keeps transactions, locks
+ * and the work redone after a failure bounded.
+ *
+ * Restart is not affected: readers and writers save their state at every commit whatever the chunk size is.
+ * The learned size is saved in the step ExecutionContext, a restarted step continues from it.
+ * Workers of a partitioned step share one policy and tune one size together.
+ */
+public class AdaptiveCompletionPolicy extends CompletionPolicySupport implements ChunkListener, StepExecutionListener {
+
+  private static final Logger logger = LoggerFactory.getLogger(AdaptiveCompletionPolicy.class);
+
+  private static final String CHUNK_START = AdaptiveCompletionPolicy.class.getName() + ".start";
+  private static final String CHUNK_READ_COUNT = AdaptiveCompletionPolicy.class.getName() + ".readCount";
+  private static final int WINDOW = 3;
+  private static final double GROWTH = 1.5;
+  // throughput changes below this are treated as noise
+  private static final double TOLERANCE = 0.05;
+
+  private final String name;
+  private final int minSize;
+  private final int maxSize;
+  private final long targetChunkNanos;
+  private final int initialSize;
+
+  private volatile int chunkSize;
+  private int direction = 1;
+  private double lastThroughput;
+  private int windowChunks;
+  private long windowItems;
+  private long windowNanos;
+
+  public AdaptiveCompletionPolicy(String name, int initialSize, int minSize, int maxSize, Duration targetChunkTime) {
+    Assert.isTrue(minSize > 0 && minSize <= maxSize, "minSize must be positive and not greater than maxSize");
+    this.name = name;
+    this.minSize = minSize;
+    this.maxSize = maxSize;
+    this.targetChunkNanos = targetChunkTime.toNanos();
+    this.initialSize = clamp(initialSize);
+    this.chunkSize = this.initialSize;
+  }
+
+  public int getChunkSize() {
+    return chunkSize;
+  }
+
+  private String sizeKey() {
+    return name + ".adaptiveChunkSize";
+  }
+
+  @Override
+  public synchronized void beforeStep(StepExecution stepExecution) {
+    if (stepExecution.getExecutionContext().containsKey(sizeKey())) {
+      chunkSize = clamp(stepExecution.getExecutionContext().getInt(sizeKey()));
+    } else if (!stepExecution.getStepName().contains(":")) {
+      // a new run starts over, the workers of a partitioned step keep what the others learned
+      chunkSize = initialSize;
+    }
+    direction = 1;
+    lastThroughput = 0;
+    windowChunks = 0;
+    windowItems = 0;
+    windowNanos = 0;
+  }
+
+  @Override
+  public ExitStatus afterStep(StepExecution stepExecution) {
+    logger.info("Step {} finished with a chunk size of {}", stepExecution.getStepName(), chunkSize);
+    return stepExecution.getExitStatus();
+  }
+
+  @Override
+  public RepeatContext start(RepeatContext parent) {
+    return new SizedContext(parent, chunkSize);
+  }
+
+  @Override
+  public boolean isComplete(RepeatContext context, RepeatStatus result) {
+    if (result == null || !result.isContinuable()) {
+      return true;
+    }
+    return isComplete(context);
+  }
+
+  @Override
+  public boolean isComplete(RepeatContext context) {
+    SizedContext sizedContext = (SizedContext) context;
+    return sizedContext.getStartedCount() >= sizedContext.size;
+  }
+
+  @Override
+  public void beforeChunk(ChunkContext context) {
+    context.setAttribute(CHUNK_START, System.nanoTime());
+    context.setAttribute(CHUNK_READ_COUNT, context.getStepContext().getStepExecution().getReadCount());
+  }
+
+  @Override
+  public void afterChunk(ChunkContext context) {
+    Long start = (Long) context.getAttribute(CHUNK_START);
+    Integer readCount = (Integer) context.getAttribute(CHUNK_READ_COUNT);
+    if (start == null || readCount == null) {
+      return;
+    }
+    StepExecution stepExecution = context.getStepContext().getStepExecution();
+    int items = stepExecution.getReadCount() - readCount;
+    // the last chunk of a step is short and says nothing about the size
+    if (items > 0 && items >= chunkSize / 2) {
+      adapt(items, System.nanoTime() - start);
+    }
+    stepExecution.getExecutionContext().putInt(sizeKey(), chunkSize);
+  }
+
+  @Override
+  public void afterChunkError(ChunkContext context) {
+  }
+
+  private synchronized void adapt(int items, long nanos) {
+    windowChunks++;
+    windowItems += items;
+    windowNanos += nanos;
+    // small chunks are too noisy to compare one by one
+    if (windowChunks < WINDOW || windowNanos < targetChunkNanos / 10) {
+      return;
+    }
+
+    double throughput = windowItems / (double) windowNanos;
+    long meanChunkNanos = windowNanos / windowChunks;
+    int previousSize = chunkSize;
+    int next = chunkSize;
+    if (meanChunkNanos > targetChunkNanos) {
+      direction = -1;
+      next = step();
+    } else if (lastThroughput == 0 || throughput > lastThroughput * (1 + TOLERANCE)) {
+      next = step();
+    } else if (throughput < lastThroughput * (1 - TOLERANCE)) {
+      direction = -direction;
+      next = step();
+    }
+    // growing must not push the chunks past the target time
+    if (next > chunkSize && meanChunkNanos * next / chunkSize > targetChunkNanos) {
+      next = chunkSize;
+    }
+    chunkSize = clamp(next);
+    if (chunkSize != previousSize) {
+      logger.debug("Chunk size of {} changed from {} to {} ({} items/s, {} ms per chunk)", name, previousSize, chunkSize,
+        (long) (throughput * 1_000_000_000L), meanChunkNanos / 1_000_000);
+    }
+
+    lastThroughput = throughput;
+    windowChunks = 0;
+    windowItems = 0;
+    windowNanos = 0;
+  }
+
+  private int step() {
+    return direction > 0 ? (int) Math.ceil(chunkSize * GROWTH) : (int) (chunkSize / GROWTH);
+  }
+
+  private int clamp(int size) {
+    return Math.max(minSize, Math.min(maxSize, size));
+  }
+
+  private static final class SizedContext extends RepeatContextSupport {
+    private final int size;
+
+    private SizedContext(RepeatContext parent, int size) {
+      super(parent);
+      this.size = size;
+    }
+  }
+}
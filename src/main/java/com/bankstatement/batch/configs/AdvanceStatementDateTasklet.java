@@ -0,0 +1,44 @@
+package com.bankstatement.batch.configs;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.batch.core.StepContribution;
+import org.springframework.batch.core.scope.context.ChunkContext;
+import org.springframework.batch.core.step.tasklet.Tasklet;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.batch.repeat.RepeatStatus;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+
+/***
+ * Last step of an incremental statement run: moves last_statement_date up to the period end for every account
+ * of the customers that got a statement, so the next run starts where this one stopped.
+ * Running it again after a restart changes nothing, the accounts no longer have transactions in their period.
+ */
+public class AdvanceStatementDateTasklet implements Tasklet {
+
+  private static final Logger logger = LoggerFactory.getLogger(AdvanceStatementDateTasklet.class);
+
+  // MySQL does not allow a subquery on the updated table, the derived table is materialized first
+  protected static final String ADVANCE_STATEMENT_DATE = "UPDATE ACCOUNT SET LAST_STATEMENT_DATE = ? " +
+    "WHERE ACCOUNT_ID IN (SELECT ACCOUNT_ACCOUNT_ID FROM " +
+    "(SELECT ca.account_account_id FROM customer_account ca WHERE " +
+    StatementPeriodTasklet.activeCustomer("ca.customer_customer_id") + ") statement_accounts)";
+
+  private final JdbcTemplate jdbcTemplate;
+
+  public AdvanceStatementDateTasklet(JdbcTemplate jdbcTemplate) {
+    this.jdbcTemplate = jdbcTemplate;
+  }
+
+  @Override
+  public RepeatStatus execute(StepContribution contribution, ChunkContext chunkContext) {
+    ExecutionContext jobContext = chunkContext.getStepContext().getStepExecution().getJobExecution().getExecutionContext();
+    Timestamp periodEnd = new Timestamp(jobContext.getLong(StatementPeriodTasklet.PERIOD_END));
+    int accounts = jdbcTemplate.update(ADVANCE_STATEMENT_DATE, periodEnd, periodEnd);
+    contribution.incrementWriteCount(accounts);
+    logger.info("Advanced last_statement_date of {} accounts to {}", accounts, periodEnd);
+    return RepeatStatus.FINISHED;
+  }
+}
@@ -0,0 +1,56 @@
+package com.bankstatement.batch.configs;
+
+import com.bankstatement.batch.domain.Transaction;
+import org.springframework.batch.item.ItemWriter;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+/***
+ * Delta applyTransactions: marks every transaction of the chunk with the applying job instance in
+ * transaction.apply_batch_id before the balance writer applies it, in the same chunk transaction.
+ * Only the transactions that were not marked yet are passed on, so a transaction is applied to its balance exactly once,
+ * also when the committed chunks of a failed instance are read again by a new job instance instead of a restart.
+ */
+public class AppliedTransactionItemWriter implements ItemWriter<Transaction> {
+
+  /***
+   * Condition of the delta reader on the transactions that still have to be applied.
+   */
+  public static final String NOT_APPLIED = "apply_batch_id is null";
+
+  protected static final String MARK_APPLIED = "UPDATE TRANSACTION SET APPLY_BATCH_ID = ? " +
+    "WHERE TRANSACTION_ID = ? AND APPLY_BATCH_ID IS NULL";
+
+  private final JdbcTemplate jdbcTemplate;
+  private final ItemWriter<Transaction> balanceWriter;
+  private final long applyBatchId;
+
+  public AppliedTransactionItemWriter(JdbcTemplate jdbcTemplate, ItemWriter<Transaction> balanceWriter, long applyBatchId) {
+    this.jdbcTemplate = jdbcTemplate;
+    this.balanceWriter = balanceWriter;
+    this.applyBatchId = applyBatchId;
+  }
+
+  @Override
+  public void write(List<? extends Transaction> items) throws Exception {
+    List<Object[]> marks = new ArrayList<>(items.size());
+    for (Transaction transaction : items) {
+      marks.add(new Object[]{applyBatchId, transaction.getTransactionId()});
+    }
+    int[] marked = jdbcTemplate.batchUpdate(MARK_APPLIED, marks);
+
+    List<Transaction> notApplied = new ArrayList<>(items.size());
+    for (int i = 0; i < items.size(); i++) {
+      // a driver that rewrites the batch does not report the rows of each statement
+      if (marked[i] > 0 || marked[i] == Statement.SUCCESS_NO_INFO) {
+        notApplied.add(items.get(i));
+      }
+    }
+    if (!notApplied.isEmpty()) {
+      balanceWriter.write(notApplied);
+    }
+  }
+}
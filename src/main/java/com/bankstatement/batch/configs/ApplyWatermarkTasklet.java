@@ -0,0 +1,57 @@
+package com.bankstatement.batch.configs;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.batch.core.StepContribution;
+import org.springframework.batch.core.scope.context.ChunkContext;
+import org.springframework.batch.core.step.tasklet.Tasklet;
+import org.springframework.batch.repeat.RepeatStatus;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.List;
+
+/***
+ * High-water mark of delta applyTransactions: the import batch up to which the transactions are applied to the balances.
+ * Imported transactions carry the job instance id as import_batch_id, applyTransactions only reads the batches
+ * after the mark up to the running job instance, this tasklet moves the mark up once they are applied.
+ *
+ * The mark is moved in its own step, so a failed apply is restarted over the same batches
+ * and a completed apply is never applied again, also when the job stops between the two steps.
+ * Batches of job instances that were abandoned after their import are picked up by the next run.
+ * The mark only narrows the range that is read: every transaction is also marked in transaction.apply_batch_id in the
+ * chunk that applies it (AppliedTransactionItemWriter), so the committed part of an abandoned apply is not applied again.
+ */
+public class ApplyWatermarkTasklet implements Tasklet {
+
+  private static final Logger logger = LoggerFactory.getLogger(ApplyWatermarkTasklet.class);
+
+  public static final String APPLY_TRANSACTIONS = "applyTransactions";
+
+  protected static final String SELECT_WATERMARK = "SELECT IMPORT_BATCH_ID FROM APPLY_WATERMARK WHERE NAME = ?";
+  protected static final String UPDATE_WATERMARK = "UPDATE APPLY_WATERMARK SET IMPORT_BATCH_ID = ? WHERE NAME = ?";
+  protected static final String INSERT_WATERMARK = "INSERT INTO APPLY_WATERMARK (NAME, IMPORT_BATCH_ID) VALUES (?, ?)";
+
+  private final JdbcTemplate jdbcTemplate;
+
+  public ApplyWatermarkTasklet(JdbcTemplate jdbcTemplate) {
+    this.jdbcTemplate = jdbcTemplate;
+  }
+
+  /***
+   * The last applied import batch, -1 before the first delta run since job instance ids may start at 0.
+   */
+  public static long appliedImportBatch(JdbcTemplate jdbcTemplate) {
+    List<Long> watermark = jdbcTemplate.queryForList(SELECT_WATERMARK, Long.class, APPLY_TRANSACTIONS);
+    return watermark.isEmpty() ? -1 : watermark.get(0);
+  }
+
+  @Override
+  public RepeatStatus execute(StepContribution contribution, ChunkContext chunkContext) {
+    long importBatch = chunkContext.getStepContext().getStepExecution().getJobExecution().getJobId();
+    if (jdbcTemplate.update(UPDATE_WATERMARK, importBatch, APPLY_TRANSACTIONS) == 0) {
+      jdbcTemplate.update(INSERT_WATERMARK, APPLY_TRANSACTIONS, importBatch);
+    }
+    logger.info("Transactions applied up to import batch {}", importBatch);
+    return RepeatStatus.FINISHED;
+  }
+}
@@ -0,0 +1,51 @@
+package com.bankstatement.batch.configs;
+
+import org.springframework.batch.item.ItemProcessor;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.util.Assert;
+
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.Semaphore;
+
+/***
+ * Runs the delegate processor on a TaskExecutor and returns its result as a Future, FutureItemWriter unwraps the
+ * results of a chunk in item order. While the delegate waits on the database for one item, the step thread
+ * already reads and hands out the next ones.
+ *
+ * At most maxInFlight items are processed at the same time, the step thread blocks on the next item until one
+ * finishes, which keeps the executor queue and the database connections in use bounded whatever the executor is.
+ * A chunk never has more items in flight than its size, the writer waits for all of them.
+ */
+public class BoundedAsyncItemProcessor<I, O> implements ItemProcessor<I, Future<O>> {
+
+  private final ItemProcessor<I, O> delegate;
+  private final TaskExecutor taskExecutor;
+  private final Semaphore inFlight;
+
+  public BoundedAsyncItemProcessor(ItemProcessor<I, O> delegate, TaskExecutor taskExecutor, int maxInFlight) {
+    Assert.isTrue(maxInFlight > 0, "maxInFlight must be greater than zero");
+    this.delegate = delegate;
+    this.taskExecutor = taskExecutor;
+    this.inFlight = new Semaphore(maxInFlight);
+  }
+
+  @Override
+  public Future<O> process(I item) throws Exception {
+    inFlight.acquire();
+    FutureTask<O> task = new FutureTask<>(() -> {
+      try {
+        return delegate.process(item);
+      } finally {
+        inFlight.release();
+      }
+    });
+    try {
+      taskExecutor.execute(task);
+    } catch (RuntimeException e) {
+      inFlight.release();
+      throw e;
+    }
+    return task;
+  }
+}
@@ -0,0 +1,57 @@
+package com.bankstatement.batch.configs;
+
+import java.util.HashSet;
+import java.util.Set;
+
+/***
+ * Compact set of customer ids backed by a primitive long[] bitmap, one bit per id.
+ * Customer ids are auto increment keys, so the ids are dense and 100M customers fit in about 12 MB.
+ * The bitmap covers the ids up to at most 64 times the expected number of ids, so it never takes more than a long per id;
+ * ids beyond it, like a single outlier far above the others or the ids of a sparse range, are kept in a hash set.
+ * Writes are not synchronized; the set is filled once before the step starts and only read afterwards.
+ */
+public class CustomerIdBitmap {
+
+  private static final long MIN_BITMAP_IDS = 1024;
+
+  private final long[] words;
+  private final Set<Long> outliers = new HashSet<>();
+  private int size;
+
+  /***
+   * @param expectedMaxId the largest id, MAX(customer_id)
+   * @param expectedIds   the number of ids, COUNT(*)
+   */
+  public CustomerIdBitmap(long expectedMaxId, long expectedIds) {
+    long maxBitmapId = Math.min(Math.max(expectedIds, MIN_BITMAP_IDS), Integer.MAX_VALUE) * Long.SIZE - 1;
+    this.words = new long[(int) (Math.min(Math.max(expectedMaxId, 0), maxBitmapId) >>> 6) + 1];
+  }
+
+  public void add(long id) {
+    if (inBitmap(id)) {
+      int index = (int) (id >>> 6);
+      long mask = 1L << id;
+      if ((words[index] & mask) == 0) {
+        words[index] |= mask;
+        size++;
+      }
+    } else if (outliers.add(id)) {
+      size++;
+    }
+  }
+
+  public boolean contains(long id) {
+    if (inBitmap(id)) {
+      return (words[(int) (id >>> 6)] & (1L << id)) != 0;
+    }
+    return outliers.contains(id);
+  }
+
+  public int size() {
+    return size;
+  }
+
+  private boolean inBitmap(long id) {
+    return id >= 0 && (id >>> 6) < words.length;
+  }
+}
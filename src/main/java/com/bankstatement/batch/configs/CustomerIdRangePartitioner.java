@@ -0,0 +1,61 @@
+package com.bankstatement.batch.configs;
+
+import org.springframework.batch.core.partition.support.Partitioner;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/***
+ * Splits the CUSTOMER table into gridSize contiguous customer_id ranges.
+ * Each worker step gets minCustomerId, maxCustomerId and partitionName in its step ExecutionContext,
+ * so its reader only sees its own range and its writer gets its own output files.
+ */
+public class CustomerIdRangePartitioner implements Partitioner {
+
+  public static final String MIN_CUSTOMER_ID = "minCustomerId";
+  public static final String MAX_CUSTOMER_ID = "maxCustomerId";
+  public static final String PARTITION_NAME = "partitionName";
+
+  protected static final String FIND_CUSTOMER_ID_RANGE = "SELECT MIN(customer_id), MAX(customer_id) FROM CUSTOMER";
+
+  private final JdbcTemplate jdbcTemplate;
+
+  public CustomerIdRangePartitioner(JdbcTemplate jdbcTemplate) {
+    this.jdbcTemplate = jdbcTemplate;
+  }
+
+  @Override
+  public Map<String, ExecutionContext> partition(int gridSize) {
+    long[] range = jdbcTemplate.queryForObject(FIND_CUSTOMER_ID_RANGE,
+      (rs, i) -> new long[]{rs.getLong(1), rs.wasNull() ? -1 : rs.getLong(2)});
+
+    Map<String, ExecutionContext> partitions = new HashMap<>(gridSize);
+    long min = range[0];
+    long max = range[1];
+    if (max < min) {
+      // empty table, a single empty partition keeps the step flow the same
+      partitions.put("partition0", context("partition0", 1, 0));
+      return partitions;
+    }
+
+    long targetSize = (max - min) / gridSize + 1;
+    long start = min;
+    for (int i = 0; start <= max; i++) {
+      long end = Math.min(start + targetSize - 1, max);
+      String name = "partition" + i;
+      partitions.put(name, context(name, start, end));
+      start = end + 1;
+    }
+    return partitions;
+  }
+
+  private ExecutionContext context(String name, long minCustomerId, long maxCustomerId) {
+    ExecutionContext context = new ExecutionContext();
+    context.putString(PARTITION_NAME, name);
+    context.putLong(MIN_CUSTOMER_ID, minCustomerId);
+    context.putLong(MAX_CUSTOMER_ID, maxCustomerId);
+    return context;
+  }
+}
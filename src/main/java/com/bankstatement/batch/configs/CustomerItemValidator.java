@@ -1,39 +1,103 @@
 package com.bankstatement.batch.configs;
 
 import com.bankstatement.batch.domain.CustomerUpdate;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Metrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.batch.core.ExitStatus;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.StepExecutionListener;
 import org.springframework.batch.item.validator.ValidationException;
 import org.springframework.batch.item.validator.Validator;
-import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
 import org.springframework.stereotype.Component;
 
 import javax.sql.DataSource;
 import java.util.Collections;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
 
 /***
  * r. The intent of this component will be to look up the customer id in the CustomerUpdate object it receives.
  * If it exists in the database, we’ll let the record through.
  * If it does not exist, we’ll filter those records out.
+ *
+ * With bankstatement.customer-validation.preload enabled, all customer ids are loaded into a bitmap
+ * with one query before the step starts, instead of one SELECT COUNT(*) per update record.
+ * Hit and miss counts are stored in the step ExecutionContext when the step ends,
+ * and counted in the bankstatement.customer.validation meter for bankstatement.metrics.
  */
 // connected with the itemProcessor
 @Component
-public class CustomerItemValidator implements Validator<CustomerUpdate> {
+public class CustomerItemValidator implements Validator<CustomerUpdate>, StepExecutionListener {
+
+  private static final Logger logger = LoggerFactory.getLogger(CustomerItemValidator.class);
 
   private final NamedParameterJdbcTemplate jdbcTemplate;
+  private final boolean preload;
+
+  private volatile CustomerIdBitmap customerIds;
+  private final AtomicLong hits = new AtomicLong();
+  private final AtomicLong misses = new AtomicLong();
+  private final Counter hitCounter = Metrics.counter("bankstatement.customer.validation", "result", "hit");
+  private final Counter missCounter = Metrics.counter("bankstatement.customer.validation", "result", "miss");
 
   protected static final String FIND_CUSTOMER = "SELECT COUNT(*) FROM CUSTOMER WHERE customer_id = :id";
+  protected static final String FIND_CUSTOMER_IDS = "SELECT customer_id FROM CUSTOMER";
+  protected static final String COUNT_CUSTOMER_IDS = "SELECT MAX(customer_id), COUNT(*) FROM CUSTOMER";
 
-  public CustomerItemValidator(DataSource dataSource) {
+  public CustomerItemValidator(DataSource dataSource,
+                               @Value("${bankstatement.customer-validation.preload:false}") boolean preload) {
     this.jdbcTemplate = new NamedParameterJdbcTemplate(dataSource);
+    this.preload = preload;
   }
 
   @Override
   public void validate(CustomerUpdate customer) throws ValidationException {
-    Map<String, Long> parameterMap = Collections.singletonMap("id", customer.getCustomerId());
-    Long count = jdbcTemplate.queryForObject(FIND_CUSTOMER, parameterMap, Long.class);
-    if(count != null && count == 0) {
+    if (exists(customer.getCustomerId())) {
+      hits.incrementAndGet();
+      hitCounter.increment();
+    } else {
+      misses.incrementAndGet();
+      missCounter.increment();
       throw new ValidationException(String.format("Customer id %s was not able to be found", customer.getCustomerId()));
     }
   }
+
+  private boolean exists(long customerId) {
+    CustomerIdBitmap ids = this.customerIds;
+    if (ids != null) {
+      return ids.contains(customerId);
+    }
+    Map<String, Long> parameterMap = Collections.singletonMap("id", customerId);
+    Long count = jdbcTemplate.queryForObject(FIND_CUSTOMER, parameterMap, Long.class);
+    return count == null || count != 0;
+  }
+
+  @Override
+  public void beforeStep(StepExecution stepExecution) {
+    hits.set(0);
+    misses.set(0);
+    if (preload) {
+      CustomerIdBitmap ids = jdbcTemplate.getJdbcTemplate().queryForObject(COUNT_CUSTOMER_IDS,
+        (rs, rowNum) -> new CustomerIdBitmap(rs.getLong(1), rs.getLong(2)));
+      jdbcTemplate.getJdbcTemplate().query(FIND_CUSTOMER_IDS, rs -> {
+        ids.add(rs.getLong(1));
+      });
+      this.customerIds = ids;
+      logger.info("Preloaded {} customer ids for validation", ids.size());
+    }
+  }
+
+  @Override
+  public ExitStatus afterStep(StepExecution stepExecution) {
+    // the bitmap is only valid for the step it was loaded for
+    this.customerIds = null;
+    stepExecution.getExecutionContext().putLong("customerValidation.hits", hits.get());
+    stepExecution.getExecutionContext().putLong("customerValidation.misses", misses.get());
+    logger.info("Customer validation: {} hits, {} misses", hits.get(), misses.get());
+    return stepExecution.getExitStatus();
+  }
 }
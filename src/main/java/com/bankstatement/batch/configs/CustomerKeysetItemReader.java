@@ -0,0 +1,191 @@
+package com.bankstatement.batch.configs;
+
+import com.bankstatement.batch.domain.Customer;
+import com.bankstatement.batch.domain.Statement;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.batch.item.ItemStreamException;
+import org.springframework.batch.item.support.AbstractItemStreamItemReader;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.util.Assert;
+import org.springframework.util.ClassUtils;
+
+import javax.sql.DataSource;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+/***
+ * Reads the customers of the statements a page at a time, ordered by customer_id and continuing after the last
+ * customer_id of the previous page, instead of one cursor over SELECT * for the whole step.
+ * Only the columns the statement header prints are selected, the other Customer fields stay empty.
+ *
+ * While the step works through a page, the next page is already queried on the TaskExecutor, so the step thread only
+ * waits when the database is slower than the processing of a page. Every page query takes a connection for the time of
+ * the query only. The last returned customer_id is the restart state, a restart continues after it.
+ */
+public class CustomerKeysetItemReader extends AbstractItemStreamItemReader<Statement> {
+
+  protected static final String SELECT_CUSTOMERS = "SELECT c.customer_id, " +
+    "c.first_name, " +
+    "c.last_name, " +
+    "c.address1, " +
+    "c.city, " +
+    "c.state, " +
+    "c.postal_code " +
+    "FROM CUSTOMER c WHERE c.customer_id > ? ";
+
+  private static final String LAST_CUSTOMER_ID = "lastCustomerId";
+
+  private static final RowMapper<Customer> CUSTOMER_ROW_MAPPER = (rs, rowNum) -> new Customer(rs.getLong(1),
+    rs.getString(2),
+    null,
+    rs.getString(3),
+    rs.getString(4),
+    null,
+    rs.getString(5),
+    rs.getString(6),
+    rs.getString(7),
+    null,
+    null,
+    null,
+    null,
+    null,
+    0);
+
+  private final JdbcTemplate jdbcTemplate;
+
+  private TaskExecutor taskExecutor = new SimpleAsyncTaskExecutor("customer-page-");
+  private int pageSize = 1000;
+  private Long minCustomerId;
+  private Long maxCustomerId;
+  private Timestamp periodEnd;
+
+  private String sql;
+  private List<Customer> page = Collections.emptyList();
+  private int next;
+  private CompletableFuture<List<Customer>> nextPage;
+  private long lastCustomerId;
+
+  public CustomerKeysetItemReader(DataSource dataSource) {
+    Assert.notNull(dataSource, "A DataSource is required");
+    this.jdbcTemplate = new JdbcTemplate(dataSource);
+    setName(ClassUtils.getShortName(CustomerKeysetItemReader.class));
+  }
+
+  public void setTaskExecutor(TaskExecutor taskExecutor) {
+    this.taskExecutor = taskExecutor;
+  }
+
+  public void setPageSize(int pageSize) {
+    Assert.isTrue(pageSize > 0, "pageSize must be greater than zero");
+    this.pageSize = pageSize;
+  }
+
+  /***
+   * Restricts the reader to a customer_id range, used by the partitioned statement step.
+   */
+  public void setCustomerIdRange(Long minCustomerId, Long maxCustomerId) {
+    this.minCustomerId = minCustomerId;
+    this.maxCustomerId = maxCustomerId;
+  }
+
+  /***
+   * Incremental statements up to the period end, see StatementPeriodTasklet.
+   */
+  public void setPeriodEnd(Date periodEnd) {
+    this.periodEnd = periodEnd != null ? new Timestamp(periodEnd.getTime()) : null;
+  }
+
+  @Override
+  public void open(ExecutionContext executionContext) throws ItemStreamException {
+    super.open(executionContext);
+    StringBuilder sql = new StringBuilder(SELECT_CUSTOMERS);
+    if (maxCustomerId != null) {
+      sql.append("AND c.customer_id <= ? ");
+    }
+    if (periodEnd != null) {
+      sql.append("AND ").append(StatementPeriodTasklet.activeCustomer("c.customer_id")).append(' ');
+    }
+    this.sql = sql.append("ORDER BY c.customer_id LIMIT ").append(pageSize).toString();
+
+    String key = getExecutionContextKey(LAST_CUSTOMER_ID);
+    if (executionContext.containsKey(key)) {
+      lastCustomerId = executionContext.getLong(key);
+    } else {
+      lastCustomerId = minCustomerId != null ? minCustomerId - 1 : Long.MIN_VALUE;
+    }
+    page = Collections.emptyList();
+    next = 0;
+    nextPage = fetch(lastCustomerId);
+  }
+
+  @Override
+  public Statement read() throws Exception {
+    if (next == page.size()) {
+      if (nextPage == null) {
+        return null;
+      }
+      page = get(nextPage);
+      next = 0;
+      // a short page is the last one
+      nextPage = page.size() == pageSize ? fetch(page.get(page.size() - 1).getId()) : null;
+      if (page.isEmpty()) {
+        return null;
+      }
+    }
+    Customer customer = page.get(next++);
+    lastCustomerId = customer.getId();
+    return new Statement(customer);
+  }
+
+  private CompletableFuture<List<Customer>> fetch(long afterCustomerId) {
+    List<Object> parameters = new ArrayList<>(3);
+    parameters.add(afterCustomerId);
+    if (maxCustomerId != null) {
+      parameters.add(maxCustomerId);
+    }
+    if (periodEnd != null) {
+      parameters.add(periodEnd);
+    }
+    return CompletableFuture.supplyAsync(() -> jdbcTemplate.query(sql, CUSTOMER_ROW_MAPPER, parameters.toArray()), taskExecutor);
+  }
+
+  private static List<Customer> get(CompletableFuture<List<Customer>> page) throws Exception {
+    try {
+      return page.get();
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof Exception) {
+        throw (Exception) cause;
+      }
+      if (cause instanceof Error) {
+        throw (Error) cause;
+      }
+      throw e;
+    }
+  }
+
+  @Override
+  public void update(ExecutionContext executionContext) throws ItemStreamException {
+    super.update(executionContext);
+    executionContext.putLong(getExecutionContextKey(LAST_CUSTOMER_ID), lastCustomerId);
+  }
+
+  @Override
+  public void close() throws ItemStreamException {
+    super.close();
+    if (nextPage != null) {
+      nextPage.cancel(false);
+      nextPage = null;
+    }
+    page = Collections.emptyList();
+    next = 0;
+  }
+}
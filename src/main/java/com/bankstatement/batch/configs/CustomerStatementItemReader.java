@@ -0,0 +1,211 @@
+package com.bankstatement.batch.configs;
+
+import com.bankstatement.batch.domain.Account;
+import com.bankstatement.batch.domain.Customer;
+import com.bankstatement.batch.domain.Statement;
+import com.bankstatement.batch.domain.Transaction;
+import org.springframework.batch.item.support.AbstractItemCountingItemStreamItemReader;
+import org.springframework.batch.support.DatabaseType;
+import org.springframework.jdbc.support.JdbcUtils;
+import org.springframework.util.Assert;
+import org.springframework.util.ClassUtils;
+import org.springframework.util.StringUtils;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+/***
+ * Reads complete statements with a single driving query instead of one account query per customer.
+ * Customers, accounts and transactions are joined and ordered by customer_id and timestamp, and the rows of one customer
+ * are grouped into a Statement the same way AccountResultSetExtractor groups them, so AccountItemProcessor is not needed.
+ * Restart skips the already read statements, the item count is the only state that is saved.
+ * With a statement period end only customers with activity in their period are read, with the transactions of the period.
+ * Only the customer columns the statement header prints are selected, the other Customer fields stay empty.
+ * The rows are streamed with the fetch size, on MySQL with Integer.MIN_VALUE, the only fetch size Connector/J streams with
+ * (unless useCursorFetch is set), any other one makes it buffer the whole join in the heap.
+ */
+public class CustomerStatementItemReader extends AbstractItemCountingItemStreamItemReader<Statement> {
+
+  protected static final String SELECT_STATEMENT_ROWS = "select c.customer_id, " +
+    "c.first_name, " +
+    "c.last_name, " +
+    "c.address1, " +
+    "c.city, " +
+    "c.state, " +
+    "c.postal_code, " +
+    "a.account_id, " +
+    "a.balance, " +
+    "a.last_statement_date, " +
+    "t.transaction_id, " +
+    "t.description, " +
+    "t.credit, " +
+    "t.debit, " +
+    "t.timestamp " +
+    "from customer c " +
+    // distinct, like the IN subquery of AccountItemProcessor, a customer may be linked to the same account twice
+    "left join (select distinct customer_customer_id, account_account_id from customer_account) ca " +
+    "on ca.customer_customer_id = c.customer_id " +
+    "left join account a on a.account_id = ca.account_account_id " +
+    "left join transaction t on t.account_account_id = a.account_id ";
+
+  protected static final String CUSTOMER_ID_RANGE = "c.customer_id between ? and ? ";
+
+  protected static final String ORDER_BY = "order by c.customer_id, t.timestamp, a.account_id";
+
+  private static final int CUSTOMER_ID = 1;
+  private static final int ACCOUNT_ID = 8;
+  private static final int TRANSACTION_ID = 11;
+
+  private final DataSource dataSource;
+
+  private Long minCustomerId;
+  private Long maxCustomerId;
+  private Timestamp periodEnd;
+  private int fetchSize = 1000;
+
+  private Connection connection;
+  private PreparedStatement preparedStatement;
+  private ResultSet rs;
+  private boolean hasRow;
+
+  public CustomerStatementItemReader(DataSource dataSource) {
+    Assert.notNull(dataSource, "A DataSource is required");
+    this.dataSource = dataSource;
+    setName(ClassUtils.getShortName(CustomerStatementItemReader.class));
+  }
+
+  /***
+   * Restricts the reader to a customer_id range, used by the partitioned statement step.
+   */
+  public void setCustomerIdRange(Long minCustomerId, Long maxCustomerId) {
+    this.minCustomerId = minCustomerId;
+    this.maxCustomerId = maxCustomerId;
+  }
+
+  /***
+   * Incremental statements up to the period end, see StatementPeriodTasklet.
+   */
+  public void setPeriodEnd(Date periodEnd) {
+    this.periodEnd = periodEnd != null ? new Timestamp(periodEnd.getTime()) : null;
+  }
+
+  public void setFetchSize(int fetchSize) {
+    this.fetchSize = fetchSize;
+  }
+
+  @Override
+  protected void doOpen() throws Exception {
+    boolean ranged = minCustomerId != null && maxCustomerId != null;
+    StringBuilder sql = new StringBuilder(SELECT_STATEMENT_ROWS);
+    List<Object> parameters = new ArrayList<>();
+    if (periodEnd != null) {
+      sql.append("and ").append(StatementPeriodTasklet.TRANSACTION_IN_PERIOD).append(' ');
+      parameters.add(periodEnd);
+    }
+    String where = "where ";
+    if (ranged) {
+      sql.append(where).append(CUSTOMER_ID_RANGE);
+      parameters.add(minCustomerId);
+      parameters.add(maxCustomerId);
+      where = "and ";
+    }
+    if (periodEnd != null) {
+      sql.append(where).append(StatementPeriodTasklet.activeCustomer("c.customer_id")).append(' ');
+      parameters.add(periodEnd);
+    }
+    sql.append(ORDER_BY);
+
+    connection = dataSource.getConnection();
+    preparedStatement = connection.prepareStatement(sql.toString(), ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+    preparedStatement.setFetchSize(isMySql(connection) ? Integer.MIN_VALUE : fetchSize);
+    for (int i = 0; i < parameters.size(); i++) {
+      preparedStatement.setObject(i + 1, parameters.get(i));
+    }
+    rs = preparedStatement.executeQuery();
+    hasRow = rs.next();
+  }
+
+  private static boolean isMySql(Connection connection) throws SQLException {
+    try {
+      return DatabaseType.fromProductName(connection.getMetaData().getDatabaseProductName()) == DatabaseType.MYSQL;
+    } catch (IllegalArgumentException e) {
+      return false;
+    }
+  }
+
+  @Override
+  protected Statement doRead() throws Exception {
+    if (!hasRow) {
+      return null;
+    }
+
+    long customerId = rs.getLong(CUSTOMER_ID);
+    Statement statement = new Statement(mapCustomer(customerId));
+    List<Account> accounts = new ArrayList<>();
+    Account curAccount = null;
+
+    do {
+      long accountId = rs.getLong(ACCOUNT_ID);
+      if (!rs.wasNull()) {
+        if (curAccount == null || accountId != curAccount.getId()) {
+          curAccount = new Account(accountId,
+            rs.getBigDecimal(ACCOUNT_ID + 1),
+            rs.getDate(ACCOUNT_ID + 2));
+          accounts.add(curAccount);
+        }
+
+        //description is coming from Transactions
+        String description = rs.getString(TRANSACTION_ID + 1);
+        if (StringUtils.hasText(description)) {
+          curAccount.addTransaction(
+            new Transaction(rs.getLong(TRANSACTION_ID),
+              accountId,
+              description,
+              rs.getBigDecimal(TRANSACTION_ID + 2),
+              rs.getBigDecimal(TRANSACTION_ID + 3),
+              rs.getTimestamp(TRANSACTION_ID + 4)));
+        }
+      }
+      hasRow = rs.next();
+    } while (hasRow && rs.getLong(CUSTOMER_ID) == customerId);
+
+    statement.setAccounts(accounts);
+    return statement;
+  }
+
+  private Customer mapCustomer(long customerId) throws SQLException {
+    return new Customer(customerId,
+      rs.getString(2),
+      null,
+      rs.getString(3),
+      rs.getString(4),
+      null,
+      rs.getString(5),
+      rs.getString(6),
+      rs.getString(7),
+      null,
+      null,
+      null,
+      null,
+      null,
+      0);
+  }
+
+  @Override
+  protected void doClose() throws Exception {
+    JdbcUtils.closeResultSet(rs);
+    JdbcUtils.closeStatement(preparedStatement);
+    JdbcUtils.closeConnection(connection);
+    rs = null;
+    preparedStatement = null;
+    connection = null;
+    hasRow = false;
+  }
+}
@@ -0,0 +1,111 @@
+package com.bankstatement.batch.configs;
+
+import com.bankstatement.batch.domain.CustomerAddressUpdate;
+import com.bankstatement.batch.domain.CustomerContactUpdate;
+import com.bankstatement.batch.domain.CustomerNameUpdate;
+import com.bankstatement.batch.domain.CustomerUpdate;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Metrics;
+import org.springframework.batch.item.ItemWriter;
+import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/***
+ * Writes a chunk of customer updates with one UPDATE per distinct customer instead of one per update record.
+ * The name, address and contact updates of a customer are merged field by field in file order: a later value
+ * replaces an earlier one and a null leaves the field alone, the same result as running the three per type
+ * COALESCE updates one after the other. The merged changes are sent as a single JDBC batch ordered by customer id,
+ * so concurrent chunks lock the customers in the same order.
+ * Nothing is kept between chunks, a chunk is the coalescing window and restart works like the per type writers.
+ * An update that changes no row fails the chunk with an EmptyResultDataAccessException, as the per type writers do.
+ */
+public class CustomerUpdateCoalescingItemWriter implements ItemWriter<CustomerUpdate> {
+
+  protected static final String UPDATE_CUSTOMER = "UPDATE CUSTOMER SET " +
+    "FIRST_NAME = COALESCE(?, FIRST_NAME), " +
+    "MIDDLE_NAME = COALESCE(?, MIDDLE_NAME), " +
+    "LAST_NAME = COALESCE(?, LAST_NAME), " +
+    "ADDRESS1 = COALESCE(?, ADDRESS1), " +
+    "ADDRESS2 = COALESCE(?, ADDRESS2), " +
+    "CITY = COALESCE(?, CITY), " +
+    "STATE = COALESCE(?, STATE), " +
+    "POSTAL_CODE = COALESCE(?, POSTAL_CODE), " +
+    "EMAIL_ADDRESS = COALESCE(?, EMAIL_ADDRESS), " +
+    "HOME_PHONE = COALESCE(?, HOME_PHONE), " +
+    "CELL_PHONE = COALESCE(?, CELL_PHONE), " +
+    "WORK_PHONE = COALESCE(?, WORK_PHONE), " +
+    "NOTIFICATION_PREF = COALESCE(?, NOTIFICATION_PREF) " +
+    "WHERE CUSTOMER_ID = ?";
+
+  private static final int FIRST_NAME = 0;
+  private static final int ADDRESS1 = 3;
+  private static final int EMAIL_ADDRESS = 8;
+  private static final int CUSTOMER_ID = 13;
+
+  private final JdbcTemplate jdbcTemplate;
+  // updates per JDBC batch, the number of distinct customers in a chunk
+  private final DistributionSummary batchSize = Metrics.summary("bankstatement.jdbc.batch.size", "writer", "customerUpdate");
+
+  public CustomerUpdateCoalescingItemWriter(JdbcTemplate jdbcTemplate) {
+    this.jdbcTemplate = jdbcTemplate;
+  }
+
+  @Override
+  public void write(List<? extends CustomerUpdate> items) {
+    Map<Long, Object[]> changes = new TreeMap<>();
+    for (CustomerUpdate update : items) {
+      Object[] change = changes.computeIfAbsent(update.getCustomerId(), customerId -> {
+        Object[] parameters = new Object[CUSTOMER_ID + 1];
+        parameters[CUSTOMER_ID] = customerId;
+        return parameters;
+      });
+      merge(update, change);
+    }
+
+    batchSize.record(changes.size());
+    List<Object[]> updates = new ArrayList<>(changes.values());
+    int[] updateCounts = jdbcTemplate.batchUpdate(UPDATE_CUSTOMER, updates);
+    assertUpdates(updates, updateCounts);
+  }
+
+  // like the assertUpdates of the per type JdbcBatchItemWriters, an update of a missing customer fails the chunk
+  private static void assertUpdates(List<Object[]> updates, int[] updateCounts) {
+    for (int i = 0; i < updateCounts.length; i++) {
+      if (updateCounts[i] == 0) {
+        throw new EmptyResultDataAccessException("Item " + i + " of " + updateCounts.length +
+          " did not update any rows: [customer " + updates.get(i)[CUSTOMER_ID] + "]", 1);
+      }
+    }
+  }
+
+  private static void merge(CustomerUpdate update, Object[] change) {
+    if (update instanceof CustomerNameUpdate) {
+      CustomerNameUpdate name = (CustomerNameUpdate) update;
+      set(change, FIRST_NAME, name.getFirstName(), name.getMiddleName(), name.getLastName());
+    } else if (update instanceof CustomerAddressUpdate) {
+      CustomerAddressUpdate address = (CustomerAddressUpdate) update;
+      set(change, ADDRESS1, address.getAddress1(), address.getAddress2(), address.getCity(), address.getState(),
+        address.getPostalCode());
+    } else if (update instanceof CustomerContactUpdate) {
+      CustomerContactUpdate contact = (CustomerContactUpdate) update;
+      set(change, EMAIL_ADDRESS, contact.getEmailAddress(), contact.getHomePhone(), contact.getCellPhone(),
+        contact.getWorkPhone(), contact.getNotificationPreferences());
+    } else {
+      throw new IllegalArgumentException("Invalid type: " + update.getClass().getCanonicalName());
+    }
+  }
+
+  // null means unchanged, so it never replaces a value of an earlier update
+  private static void set(Object[] change, int first, Object... values) {
+    for (int i = 0; i < values.length; i++) {
+      if (values[i] != null) {
+        change[first + i] = values[i];
+      }
+    }
+  }
+}
@@ -0,0 +1,370 @@
+package com.bankstatement.batch.configs;
+
+import com.bankstatement.batch.domain.CustomerAddressUpdate;
+import com.bankstatement.batch.domain.CustomerContactUpdate;
+import com.bankstatement.batch.domain.CustomerNameUpdate;
+import com.bankstatement.batch.domain.CustomerUpdate;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.batch.item.ItemStreamException;
+import org.springframework.batch.item.file.FlatFileParseException;
+import org.springframework.batch.item.file.ResourceAwareItemReaderItemStream;
+import org.springframework.batch.item.file.transform.IncorrectTokenCountException;
+import org.springframework.batch.item.support.AbstractItemCountingItemStreamItemReader;
+import org.springframework.core.io.Resource;
+import org.springframework.util.Assert;
+import org.springframework.util.ClassUtils;
+import org.springframework.util.StringUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+
+/***
+ * Reader for the customer_update.csv format with its three record types, the bytes of a line are mapped straight onto
+ * a CustomerNameUpdate, CustomerAddressUpdate or CustomerContactUpdate. The record type is the first byte of the line,
+ * the fields are split over one reused line buffer and only the fields that have a value become Strings,
+ * without the line String, the tokens and the FieldSet of FlatFileItemReader with the composite tokenizer.
+ * The result is the same: fields are trimmed and unquoted like DelimitedLineTokenizer and FieldSet do,
+ * lines starting with # are comments and parse errors are FlatFileParseExceptions with the line number.
+ *
+ * The byte position and line number are saved with the item count, a restart of a file seeks straight to the position.
+ * In memory mapped mode the file is read through mapped windows of mappedWindowSize bytes instead of a heap buffer,
+ * which suits files of several GB.
+ */
+public class CustomerUpdateFileItemReader extends AbstractItemCountingItemStreamItemReader<CustomerUpdate>
+  implements ResourceAwareItemReaderItemStream<CustomerUpdate> {
+
+  private static final String POSITION = "position";
+  private static final String LINE_NUMBER = "line";
+  private static final int BUFFER_SIZE = 64 * 1024;
+  private static final int MAX_FIELDS = 7;
+
+  private Resource resource;
+  private boolean strict = true;
+  private boolean memoryMapped;
+  private int mappedWindowSize = 64 << 20;
+
+  private ReadableByteChannel channel;
+  private FileChannel fileChannel;
+  private long fileSize;
+  private ByteBuffer buffer;
+  // file position of the first byte in the buffer
+  private long bufferStart;
+  private boolean endOfInput;
+
+  private byte[] line = new byte[256];
+  private int lineLength;
+  private long lineNumber;
+  private final int[] fieldStart = new int[MAX_FIELDS];
+  private final int[] fieldEnd = new int[MAX_FIELDS];
+  private final boolean[] fieldQuoted = new boolean[MAX_FIELDS];
+
+  private long restartPosition = -1;
+  private long restartLineNumber;
+
+  public CustomerUpdateFileItemReader() {
+    setName(ClassUtils.getShortName(CustomerUpdateFileItemReader.class));
+  }
+
+  @Override
+  public void setResource(Resource resource) {
+    this.resource = resource;
+  }
+
+  /***
+   * In strict mode (the default) a missing input resource fails the step.
+   */
+  public void setStrict(boolean strict) {
+    this.strict = strict;
+  }
+
+  /***
+   * Read the file through memory mapped windows, the resource has to be a file.
+   */
+  public void setMemoryMapped(boolean memoryMapped) {
+    this.memoryMapped = memoryMapped;
+  }
+
+  public void setMappedWindowSize(int mappedWindowSize) {
+    Assert.isTrue(mappedWindowSize > 0, "mappedWindowSize must be greater than zero");
+    this.mappedWindowSize = mappedWindowSize;
+  }
+
+  @Override
+  public void open(ExecutionContext executionContext) throws ItemStreamException {
+    if (isSaveState() && executionContext.containsKey(getExecutionContextKey(POSITION))) {
+      restartPosition = executionContext.getLong(getExecutionContextKey(POSITION));
+      restartLineNumber = executionContext.getLong(getExecutionContextKey(LINE_NUMBER));
+    } else {
+      restartPosition = -1;
+    }
+    super.open(executionContext);
+  }
+
+  @Override
+  protected void doOpen() throws Exception {
+    Assert.notNull(resource, "The resource must be set");
+    lineNumber = 0;
+    bufferStart = 0;
+    endOfInput = false;
+    if (!resource.exists()) {
+      if (strict) {
+        throw new IllegalStateException("Input resource must exist (reader is in 'strict' mode): " + resource);
+      }
+      return;
+    }
+    if (resource.isFile()) {
+      File file = resource.getFile();
+      fileChannel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+      fileSize = fileChannel.size();
+      channel = fileChannel;
+    } else {
+      Assert.state(!memoryMapped, "Memory mapped mode needs a file resource: " + resource);
+      channel = Channels.newChannel(resource.getInputStream());
+    }
+    buffer = memoryMapped ? ByteBuffer.allocate(0) : ByteBuffer.allocate(BUFFER_SIZE);
+    buffer.flip();
+  }
+
+  @Override
+  protected CustomerUpdate doRead() throws Exception {
+    if (buffer == null) {
+      return null;
+    }
+    while (nextLine()) {
+      if (lineLength > 0 && line[0] == '#') {
+        continue;
+      }
+      try {
+        return mapLine();
+      } catch (RuntimeException e) {
+        String input = lineText();
+        throw new FlatFileParseException("Parsing error at line: " + lineNumber + " in resource=[" +
+          resource.getDescription() + "], input=[" + input + "]", e, input, (int) lineNumber);
+      }
+    }
+    return null;
+  }
+
+  @Override
+  protected void jumpToItem(int itemIndex) throws Exception {
+    if (buffer == null) {
+      return;
+    }
+    if (restartPosition >= 0 && fileChannel != null) {
+      bufferStart = restartPosition;
+      lineNumber = restartLineNumber;
+      fileChannel.position(restartPosition);
+      buffer.clear();
+      buffer.flip();
+      return;
+    }
+    int skipped = 0;
+    while (skipped < itemIndex && nextLine()) {
+      if (lineLength == 0 || line[0] != '#') {
+        skipped++;
+      }
+    }
+  }
+
+  @Override
+  public void update(ExecutionContext executionContext) throws ItemStreamException {
+    super.update(executionContext);
+    if (isSaveState() && buffer != null) {
+      executionContext.putLong(getExecutionContextKey(POSITION), bufferStart + buffer.position());
+      executionContext.putLong(getExecutionContextKey(LINE_NUMBER), lineNumber);
+    }
+  }
+
+  private CustomerUpdate mapLine() {
+    if (lineLength < 2 || line[1] != ',') {
+      throw new IllegalArgumentException("Invalid record type was found: " + lineText());
+    }
+    switch (line[0]) {
+      case '1':
+        split(5);
+        return new CustomerNameUpdate(customerId(), field(2), field(3), field(4));
+      case '2':
+        split(7);
+        return new CustomerAddressUpdate(customerId(), field(2), field(3), field(4), field(5), field(6));
+      case '3':
+        split(7);
+        String rawPreference = field(6);
+        Integer notificationPreference = null;
+        if (StringUtils.hasText(rawPreference)) {
+          notificationPreference = Integer.parseInt(rawPreference);
+        }
+        return new CustomerContactUpdate(customerId(), field(2), field(3), field(4), field(5), notificationPreference);
+      default:
+        throw new IllegalArgumentException("Invalid record type was found: " + (char) line[0]);
+    }
+  }
+
+  // splits the line on commas outside of quotes and trims every field
+  private void split(int expectedFields) {
+    int fields = 0;
+    int start = 0;
+    boolean inQuotes = false;
+    for (int i = 0; i <= lineLength; i++) {
+      if (i == lineLength || (line[i] == ',' && !inQuotes)) {
+        if (fields < MAX_FIELDS) {
+          int from = start;
+          int to = i;
+          while (from < to && (line[from] & 0xff) <= ' ') {
+            from++;
+          }
+          while (to > from && (line[to - 1] & 0xff) <= ' ') {
+            to--;
+          }
+          fieldStart[fields] = from;
+          fieldEnd[fields] = to;
+          fieldQuoted[fields] = to - from >= 2 && line[from] == '"' && line[to - 1] == '"';
+        }
+        fields++;
+        start = i + 1;
+      } else if (line[i] == '"') {
+        inQuotes = !inQuotes;
+      }
+    }
+    if (fields != expectedFields) {
+      throw new IncorrectTokenCountException(expectedFields, fields, lineText());
+    }
+  }
+
+  private String field(int index) {
+    int from = fieldStart[index];
+    int to = fieldEnd[index];
+    if (from == to) {
+      return null;
+    }
+    if (fieldQuoted[index]) {
+      return new String(line, from + 1, to - from - 2, StandardCharsets.UTF_8).replace("\"\"", "\"");
+    }
+    return new String(line, from, to - from, StandardCharsets.UTF_8);
+  }
+
+  private long customerId() {
+    int from = fieldStart[1];
+    int to = fieldEnd[1];
+    if (fieldQuoted[1]) {
+      return Long.parseLong(field(1));
+    }
+    boolean negative = from < to && line[from] == '-';
+    int i = negative || (from < to && line[from] == '+') ? from + 1 : from;
+    if (i == to || to - i > 18) {
+      return Long.parseLong(new String(line, from, to - from, StandardCharsets.UTF_8));
+    }
+    long value = 0;
+    for (; i < to; i++) {
+      int digit = line[i] - '0';
+      if (digit < 0 || digit > 9) {
+        throw new NumberFormatException("For input string: \"" + new String(line, from, to - from, StandardCharsets.UTF_8) + "\"");
+      }
+      value = value * 10 + digit;
+    }
+    return negative ? -value : value;
+  }
+
+  private String lineText() {
+    return new String(line, 0, lineLength, StandardCharsets.UTF_8);
+  }
+
+  // copies the next line without its line separator into the line buffer
+  private boolean nextLine() throws IOException {
+    int scanned = buffer.position();
+    while (true) {
+      int limit = buffer.limit();
+      for (int i = scanned; i < limit; i++) {
+        if (buffer.get(i) == '\n') {
+          copyLine(i);
+          buffer.position(i + 1);
+          return true;
+        }
+      }
+      int pending = limit - buffer.position();
+      if (!fill()) {
+        if (buffer.hasRemaining()) {
+          copyLine(buffer.limit());
+          buffer.position(buffer.limit());
+          return true;
+        }
+        return false;
+      }
+      // the bytes before the refill were already searched
+      scanned = buffer.position() + pending;
+    }
+  }
+
+  private void copyLine(int end) {
+    int length = end - buffer.position();
+    if (length > line.length) {
+      line = new byte[Math.max(length, line.length * 2)];
+    }
+    buffer.get(line, 0, length);
+    if (length > 0 && line[length - 1] == '\r') {
+      length--;
+    }
+    lineLength = length;
+    lineNumber++;
+  }
+
+  // makes more bytes available after the unread ones, false at the end of the input
+  private boolean fill() throws IOException {
+    if (memoryMapped) {
+      return map();
+    }
+    if (endOfInput) {
+      return false;
+    }
+    bufferStart += buffer.position();
+    buffer.compact();
+    if (!buffer.hasRemaining()) {
+      // a line longer than the buffer
+      ByteBuffer larger = ByteBuffer.allocate(buffer.capacity() * 2);
+      buffer.flip();
+      larger.put(buffer);
+      buffer = larger;
+    }
+    int read = channel.read(buffer);
+    buffer.flip();
+    if (read < 0) {
+      endOfInput = true;
+      return false;
+    }
+    return true;
+  }
+
+  private boolean map() throws IOException {
+    long position = bufferStart + buffer.position();
+    long mappedEnd = bufferStart + buffer.limit();
+    if (mappedEnd >= fileSize) {
+      return false;
+    }
+    long pending = mappedEnd - position;
+    long window = mappedWindowSize;
+    while (window <= pending) {
+      window *= 2;
+    }
+    buffer = fileChannel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(Math.min(window, Integer.MAX_VALUE), fileSize - position));
+    bufferStart = position;
+    return true;
+  }
+
+  @Override
+  protected void doClose() throws Exception {
+    try {
+      if (channel != null) {
+        channel.close();
+      }
+    } finally {
+      channel = null;
+      fileChannel = null;
+      buffer = null;
+    }
+  }
+}
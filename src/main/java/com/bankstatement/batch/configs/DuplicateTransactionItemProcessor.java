@@ -0,0 +1,115 @@
+package com.bankstatement.batch.configs;
+
+import com.bankstatement.batch.domain.Transaction;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Metrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.batch.core.ChunkListener;
+import org.springframework.batch.core.ExitStatus;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.StepExecutionListener;
+import org.springframework.batch.core.scope.context.ChunkContext;
+import org.springframework.batch.item.ItemProcessor;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/***
+ * Filters the transactions that were already imported, so a resent or overlapping transaction file can be imported
+ * again without failing on the TRANSACTION_ID key.
+ *
+ * The ids of the TRANSACTION table are kept in the TransactionIdBloomFilter of ImportedTransactionIds. An id the filter
+ * has never seen is new and passes without a query; only the possible duplicates are looked up in the database, and
+ * the ones found there are filtered (they show in the filter count of the step). Ids that pass are added to the filter
+ * and claimed until their chunk commits, so a transaction that appears twice in the file, or in two files of the
+ * partitioned import, is imported once.
+ *
+ * There is one processor per step execution, the workers of the partitioned import share ImportedTransactionIds,
+ * which the owning step loads and saves. Duplicate, database and false positive counts are stored in the step
+ * ExecutionContext when the step ends, and counted in the bankstatement.transaction.duplicates meter for
+ * bankstatement.metrics.
+ */
+public class DuplicateTransactionItemProcessor implements ItemProcessor<Transaction, Transaction>, StepExecutionListener, ChunkListener {
+
+  private static final Logger logger = LoggerFactory.getLogger(DuplicateTransactionItemProcessor.class);
+
+  private final ImportedTransactionIds importedIds;
+
+  // ids claimed in the current chunk, they are not in the database before the chunk commits
+  private final List<Long> chunkIds = new ArrayList<>();
+  private long duplicates;
+  private long lookups;
+  private long falsePositives;
+  private final Counter duplicateCounter = Metrics.counter("bankstatement.transaction.duplicates", "result", "skipped");
+  private final Counter falsePositiveCounter = Metrics.counter("bankstatement.transaction.duplicates", "result", "falsePositive");
+
+  public DuplicateTransactionItemProcessor(ImportedTransactionIds importedIds) {
+    this.importedIds = importedIds;
+  }
+
+  @Override
+  public Transaction process(Transaction transaction) {
+    long transactionId = transaction.getTransactionId();
+    if (!importedIds.claim(transactionId)) {
+      return duplicate();
+    }
+    if (importedIds.mightContain(transactionId)) {
+      lookups++;
+      if (importedIds.imported(transactionId)) {
+        importedIds.release(Collections.singletonList(transactionId));
+        return duplicate();
+      }
+      falsePositives++;
+      falsePositiveCounter.increment();
+    }
+    importedIds.add(transactionId);
+    chunkIds.add(transactionId);
+    return transaction;
+  }
+
+  private Transaction duplicate() {
+    duplicates++;
+    duplicateCounter.increment();
+    return null;
+  }
+
+  @Override
+  public void beforeChunk(ChunkContext context) {
+    releaseChunk();
+  }
+
+  @Override
+  public void afterChunk(ChunkContext context) {
+    releaseChunk();
+  }
+
+  @Override
+  public void afterChunkError(ChunkContext context) {
+    releaseChunk();
+  }
+
+  private void releaseChunk() {
+    importedIds.release(chunkIds);
+    chunkIds.clear();
+  }
+
+  @Override
+  public void beforeStep(StepExecution stepExecution) {
+    duplicates = 0;
+    lookups = 0;
+    falsePositives = 0;
+  }
+
+  @Override
+  public ExitStatus afterStep(StepExecution stepExecution) {
+    releaseChunk();
+    stepExecution.getExecutionContext().putLong("duplicateTransactions.skipped", duplicates);
+    stepExecution.getExecutionContext().putLong("duplicateTransactions.lookups", lookups);
+    stepExecution.getExecutionContext().putLong("duplicateTransactions.falsePositives", falsePositives);
+    logger.info("Duplicate transactions: {} skipped, {} possible duplicates looked up, {} false positives",
+      duplicates, lookups, falsePositives);
+    return stepExecution.getExitStatus();
+  }
+}
@@ -0,0 +1,110 @@
+package com.bankstatement.batch.configs;
+
+import org.springframework.batch.core.ChunkListener;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.scope.context.ChunkContext;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.batch.item.ItemStream;
+import org.springframework.batch.item.ItemStreamException;
+import org.springframework.batch.item.ItemStreamWriter;
+import org.springframework.batch.item.ItemWriter;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+/***
+ * Writer side of BoundedAsyncItemProcessor: waits for the results of a chunk in item order and writes them
+ * with the delegate. Filtered (null) results are left out, a processing failure is thrown as it was thrown
+ * by the delegate processor, so the chunk fails and rolls back like it does without the executor.
+ *
+ * The chunk only sees the futures, so its contribution counts a filtered item as written. Once the chunk committed,
+ * afterChunk moves the filtered items of the chunk from the write count to the filter count of the step execution,
+ * the counts end up the same as without the executor; a chunk that fails or whose commit fails changes nothing.
+ * The filtered count of the running chunk is kept per thread, a chunk always runs on one thread, so the partitioned
+ * workers can share one writer.
+ * The delegate's stream callbacks are passed on, restart state is the delegate's.
+ */
+public class FutureItemWriter<T> implements ItemStreamWriter<Future<T>>, ChunkListener {
+
+  private final ItemWriter<T> delegate;
+  private final ThreadLocal<Integer> chunkFiltered = new ThreadLocal<>();
+
+  public FutureItemWriter(ItemWriter<T> delegate) {
+    this.delegate = delegate;
+  }
+
+  @Override
+  public void write(List<? extends Future<T>> items) throws Exception {
+    List<T> results = new ArrayList<>(items.size());
+    for (Future<T> item : items) {
+      T result = get(item);
+      if (result != null) {
+        results.add(result);
+      }
+    }
+    if (!results.isEmpty()) {
+      delegate.write(results);
+    }
+    chunkFiltered.set(items.size() - results.size());
+  }
+
+  @Override
+  public void beforeChunk(ChunkContext context) {
+    chunkFiltered.remove();
+  }
+
+  // the committed contribution added items.size() to the write count, this takes the filtered items back out
+  @Override
+  public void afterChunk(ChunkContext context) {
+    Integer filtered = chunkFiltered.get();
+    chunkFiltered.remove();
+    if (filtered != null && filtered > 0) {
+      StepExecution stepExecution = context.getStepContext().getStepExecution();
+      stepExecution.setWriteCount(stepExecution.getWriteCount() - filtered);
+      stepExecution.setFilterCount(stepExecution.getFilterCount() + filtered);
+    }
+  }
+
+  @Override
+  public void afterChunkError(ChunkContext context) {
+    chunkFiltered.remove();
+  }
+
+  private static <T> T get(Future<T> item) throws Exception {
+    try {
+      return item.get();
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof Exception) {
+        throw (Exception) cause;
+      }
+      if (cause instanceof Error) {
+        throw (Error) cause;
+      }
+      throw e;
+    }
+  }
+
+  @Override
+  public void open(ExecutionContext executionContext) throws ItemStreamException {
+    if (delegate instanceof ItemStream) {
+      ((ItemStream) delegate).open(executionContext);
+    }
+  }
+
+  @Override
+  public void update(ExecutionContext executionContext) throws ItemStreamException {
+    if (delegate instanceof ItemStream) {
+      ((ItemStream) delegate).update(executionContext);
+    }
+  }
+
+  @Override
+  public void close() throws ItemStreamException {
+    if (delegate instanceof ItemStream) {
+      ((ItemStream) delegate).close();
+    }
+  }
+}
@@ -0,0 +1,181 @@
+package com.bankstatement.batch.configs;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.batch.core.BatchStatus;
+import org.springframework.batch.core.ExitStatus;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.StepExecutionListener;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Collection;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/***
+ * The ids of the TRANSACTION table for DuplicateTransactionItemProcessor, one TransactionIdBloomFilter shared by
+ * the importTransactions step or by all the workers of the partitioned import.
+ *
+ * It is a listener of the step that owns it, importTransactions or the partitionedImportTransactions manager step:
+ * beforeStep loads the filter saved by the last run, or rebuilds it with one scan of the transaction ids when the
+ * table no longer matches, e.g. rows were imported another way, the database was recreated or the table outgrew
+ * the filter. afterStep saves it to filterFile with the row count and highest id of the table, only when the step
+ * completed, so the saved filter always holds the ids of every worker.
+ *
+ * Ids in flight, passed in a chunk that is not committed yet, are claimed in a set shared by the workers: the same
+ * id in another file, or twice in one chunk, is a duplicate before the database can tell. The processor releases
+ * the ids of a chunk once it is committed or rolled back.
+ */
+@Component
+public class ImportedTransactionIds implements StepExecutionListener {
+
+  private static final Logger logger = LoggerFactory.getLogger(ImportedTransactionIds.class);
+
+  protected static final String FIND_TRANSACTION = "SELECT COUNT(*) FROM TRANSACTION WHERE TRANSACTION_ID = ?";
+  protected static final String FIND_TRANSACTION_IDS = "SELECT TRANSACTION_ID FROM TRANSACTION";
+  protected static final String COUNT_TRANSACTIONS = "SELECT COUNT(*), COALESCE(MAX(TRANSACTION_ID), 0) FROM TRANSACTION";
+
+  private final JdbcTemplate jdbcTemplate;
+  private final Path filterFile;
+  private final long expectedIds;
+  private final double falsePositiveRate;
+
+  // guarded by this, the workers add to it concurrently
+  private TransactionIdBloomFilter filter;
+  private final Set<Long> inFlight = ConcurrentHashMap.newKeySet();
+
+  /***
+   * @param expectedIds       the least number of ids a new filter is sized for, it is sized for twice the table at least
+   * @param falsePositiveRate the share of new ids that are looked up in the database anyway
+   */
+  public ImportedTransactionIds(JdbcTemplate jdbcTemplate,
+                                @Value("${bankstatement.transactions.deduplicate.filter-file:target/transaction-ids.bloom}") String filterFile,
+                                @Value("${bankstatement.transactions.deduplicate.expected-ids:1000000}") long expectedIds,
+                                @Value("${bankstatement.transactions.deduplicate.false-positive-rate:0.01}") double falsePositiveRate) {
+    this.jdbcTemplate = jdbcTemplate;
+    this.filterFile = Paths.get(filterFile);
+    this.expectedIds = expectedIds;
+    this.falsePositiveRate = falsePositiveRate;
+  }
+
+  /***
+   * Claims an id for the current chunk, false when it is already claimed by an uncommitted chunk of any worker.
+   */
+  public boolean claim(long transactionId) {
+    return inFlight.add(transactionId);
+  }
+
+  /***
+   * Releases the claimed ids of a chunk, after its commit the database has them.
+   */
+  public void release(Collection<Long> transactionIds) {
+    for (Long transactionId : transactionIds) {
+      inFlight.remove(transactionId);
+    }
+  }
+
+  public synchronized boolean mightContain(long transactionId) {
+    return filter.mightContain(transactionId);
+  }
+
+  public synchronized void add(long transactionId) {
+    filter.add(transactionId);
+  }
+
+  public boolean imported(long transactionId) {
+    Long count = jdbcTemplate.queryForObject(FIND_TRANSACTION, Long.class, transactionId);
+    return count != null && count != 0;
+  }
+
+  @Override
+  public synchronized void beforeStep(StepExecution stepExecution) {
+    inFlight.clear();
+    TableState table = tableState();
+    filter = load(table);
+    if (filter == null) {
+      TransactionIdBloomFilter built = TransactionIdBloomFilter.create(Math.max(expectedIds, table.rows * 2), falsePositiveRate);
+      jdbcTemplate.query(FIND_TRANSACTION_IDS, rs -> {
+        built.add(rs.getLong(1));
+      });
+      filter = built;
+      logger.info("Built the transaction id filter from {} transactions", table.rows);
+    }
+  }
+
+  @Override
+  public synchronized ExitStatus afterStep(StepExecution stepExecution) {
+    if (stepExecution.getStatus() == BatchStatus.COMPLETED) {
+      save(tableState());
+    }
+    filter = null;
+    inFlight.clear();
+    return stepExecution.getExitStatus();
+  }
+
+  private TableState tableState() {
+    return jdbcTemplate.queryForObject(COUNT_TRANSACTIONS, (rs, rowNum) -> new TableState(rs.getLong(1), rs.getLong(2)));
+  }
+
+  // the saved filter, or null when there is none or it does not cover the table
+  private TransactionIdBloomFilter load(TableState table) {
+    try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(filterFile)))) {
+      TableState savedTable = new TableState(in.readLong(), in.readLong());
+      if (savedTable.rows != table.rows || savedTable.maxId != table.maxId) {
+        logger.info("The transaction id filter {} is out of date, {} transactions saved, {} in the table", filterFile,
+          savedTable.rows, table.rows);
+        return null;
+      }
+      TransactionIdBloomFilter saved = TransactionIdBloomFilter.readFrom(in);
+      if (saved.getExpectedIds() < table.rows) {
+        logger.info("The transaction id filter {} is full, {} transactions in the table", filterFile, table.rows);
+        return null;
+      }
+      logger.info("Loaded the transaction id filter {} of {} transactions", filterFile, table.rows);
+      return saved;
+    } catch (NoSuchFileException e) {
+      return null;
+    } catch (IOException e) {
+      logger.warn("Could not read the transaction id filter {}, it is rebuilt", filterFile, e);
+      return null;
+    }
+  }
+
+  private void save(TableState table) {
+    try {
+      Path directory = filterFile.toAbsolutePath().getParent();
+      Files.createDirectories(directory);
+      Path temporary = Files.createTempFile(directory, filterFile.getFileName().toString(), ".tmp");
+      try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporary)))) {
+        out.writeLong(table.rows);
+        out.writeLong(table.maxId);
+        filter.writeTo(out);
+      }
+      Files.move(temporary, filterFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    } catch (IOException e) {
+      // the next run rebuilds the filter from the table
+      logger.warn("Could not save the transaction id filter {}", filterFile, e);
+    }
+  }
+
+  private static class TableState {
+    private final long rows;
+    private final long maxId;
+
+    private TableState(long rows, long maxId) {
+      this.rows = rows;
+      this.maxId = maxId;
+    }
+  }
+}
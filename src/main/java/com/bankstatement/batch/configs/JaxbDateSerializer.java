@@ -1,19 +1,19 @@
 package com.bankstatement.batch.configs;
 
 import javax.xml.bind.annotation.adapters.XmlAdapter;
-import java.text.SimpleDateFormat;
 import java.util.Date;
 
+// TimestampCodec is immutable, so the adapter is safe to use from concurrent readers
 public class JaxbDateSerializer extends XmlAdapter<String, Date> {
-  private SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd hh:mm:ss");
+  private final TimestampCodec timestampCodec = TimestampCodec.systemDefault();
 
   @Override
   public String marshal(Date date) throws Exception {
-    return dateFormat.format(date);
+    return timestampCodec.format(date);
   }
 
   @Override
   public Date unmarshal(String date) throws Exception {
-    return dateFormat.parse(date);
+    return timestampCodec.parse(date);
   }
 }
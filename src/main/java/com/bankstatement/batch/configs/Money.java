@@ -0,0 +1,36 @@
+package com.bankstatement.batch.configs;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/***
+ * Amounts as a primitive long of cents, for the loops that sum transaction amounts. The domain objects keep their
+ * BigDecimal amounts for JAXB and JDBC and carry the cents next to them, converted once when the amount is set.
+ * Amounts read back from the FLOAT columns are not exact decimals, they are rounded half up to the cent they stand for;
+ * sums of cents are exact and fail with an ArithmeticException instead of overflowing.
+ */
+public final class Money {
+
+  public static final int SCALE = 2;
+
+  private Money() {
+  }
+
+  /***
+   * The amount in cents, rounded half up, 0 for null.
+   */
+  public static long toCents(BigDecimal amount) {
+    if (amount == null) {
+      return 0;
+    }
+    return amount.movePointRight(SCALE).setScale(0, RoundingMode.HALF_UP).longValueExact();
+  }
+
+  public static BigDecimal toBigDecimal(long cents) {
+    return BigDecimal.valueOf(cents, SCALE);
+  }
+
+  public static long add(long cents, long moreCents) {
+    return Math.addExact(cents, moreCents);
+  }
+}
@@ -0,0 +1,33 @@
+package com.bankstatement.batch.configs;
+
+import org.springframework.batch.core.ExitStatus;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.StepExecutionListener;
+import org.springframework.batch.item.ExecutionContext;
+
+/***
+ * Copies the read, write and filter counts of a partitioned step into the job ExecutionContext.
+ * The partition step has already summed the counts of its workers when afterStep is called,
+ * so the job sees one combined count however many files or ranges were processed.
+ */
+public class PartitionCountsListener implements StepExecutionListener {
+
+  private final String prefix;
+
+  public PartitionCountsListener(String prefix) {
+    this.prefix = prefix;
+  }
+
+  @Override
+  public void beforeStep(StepExecution stepExecution) {
+  }
+
+  @Override
+  public ExitStatus afterStep(StepExecution stepExecution) {
+    ExecutionContext jobContext = stepExecution.getJobExecution().getExecutionContext();
+    jobContext.putLong(prefix + ".readCount", stepExecution.getReadCount());
+    jobContext.putLong(prefix + ".writeCount", stepExecution.getWriteCount());
+    jobContext.putLong(prefix + ".filterCount", stepExecution.getFilterCount());
+    return stepExecution.getExitStatus();
+  }
+}
@@ -0,0 +1,341 @@
+package com.bankstatement.batch.configs;
+
+import com.bankstatement.batch.domain.Statement;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.batch.item.ItemStreamException;
+import org.springframework.batch.item.file.FlatFileHeaderCallback;
+import org.springframework.batch.item.support.AbstractItemStreamItemWriter;
+import org.springframework.util.Assert;
+import org.springframework.util.ClassUtils;
+
+import java.io.CharArrayWriter;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/***
+ * Packs statements into append only bundle files instead of writing one file per customer.
+ * Every bundle holds up to statementsPerBundle statements in a data file (prefix-00000.stmt) next to an index file
+ * (prefix-00000.idx) of fixed size records: customer id, offset and length of the statement in the data file.
+ * A statement entry holds exactly the bytes of the per customer file: the header, a line separator, the statement and a line separator.
+ * StatementBundleReader finds a single customer's statement with the index files.
+ * Positions are saved at every commit, a restart truncates the current bundle back to them.
+ * Whenever a bundle is opened the manifest (prefix.manifest) records the run id and the number of bundles of the prefix; a fresh
+ * open deletes the bundles of the prefix first, and the reader only reads the bundles in the manifests of the latest run,
+ * so the bundles of an earlier, larger run are never served.
+ * Long statements, like streamed ones, are encoded into the data file while they are rendered.
+ */
+public class StatementBundleItemWriter extends AbstractItemStreamItemWriter<Statement> {
+
+  public static final String DATA_SUFFIX = ".stmt";
+  public static final String INDEX_SUFFIX = ".idx";
+  public static final String MANIFEST_SUFFIX = ".manifest";
+  public static final String MANIFEST_RUN = "run";
+  public static final String MANIFEST_BUNDLES = "bundles";
+  // customer id, offset, length
+  public static final int INDEX_RECORD_SIZE = Long.BYTES + Long.BYTES + Integer.BYTES;
+
+  private static final String BUNDLE = "bundle";
+  private static final String BUNDLE_COUNT = "bundle.count";
+  private static final String DATA_POSITION = "data.position";
+  private static final String INDEX_POSITION = "index.position";
+  private static final int BUFFER_SIZE = 1 << 20;
+
+  private final Path directory;
+  private final String prefix;
+  private final int statementsPerBundle;
+
+  private final StatementRenderer renderer = new StatementRenderer();
+  private final String lineSeparator = System.getProperty("line.separator");
+  private final CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder();
+  private final StatementBuffer statementChars = new StatementBuffer();
+  private final ByteBuffer dataBuffer = ByteBuffer.allocate(BUFFER_SIZE);
+  private final ByteBuffer indexBuffer = ByteBuffer.allocate(INDEX_RECORD_SIZE * 4096);
+  private FlatFileHeaderCallback headerCallback;
+  private String header = "";
+  private long runId;
+
+  private int bundle;
+  private int bundleCount;
+  private long dataPosition;
+  private long indexPosition;
+  private FileChannel dataChannel;
+  private FileChannel indexChannel;
+
+  public StatementBundleItemWriter(Path directory, String prefix, int statementsPerBundle) {
+    Assert.isTrue(statementsPerBundle > 0, "statementsPerBundle must be greater than zero");
+    this.directory = directory;
+    this.prefix = prefix;
+    this.statementsPerBundle = statementsPerBundle;
+    setName(ClassUtils.getShortName(StatementBundleItemWriter.class));
+  }
+
+  public void setHeaderCallback(FlatFileHeaderCallback headerCallback) {
+    this.headerCallback = headerCallback;
+  }
+
+  public void setAccountRowSource(AccountRowSource accountRowSource) {
+    renderer.setAccountRowSource(accountRowSource);
+  }
+
+  /***
+   * Identifies the run in the manifest, the job instance id, so that a restart continues the run it restarts.
+   */
+  public void setRunId(long runId) {
+    this.runId = runId;
+  }
+
+  public static String bundleName(String prefix, int bundle) {
+    return String.format("%s-%05d", prefix, bundle);
+  }
+
+  @Override
+  public void open(ExecutionContext executionContext) throws ItemStreamException {
+    super.open(executionContext);
+    try {
+      header = renderHeader();
+      Files.createDirectories(directory);
+      if (executionContext.containsKey(getExecutionContextKey(BUNDLE))) {
+        bundle = executionContext.getInt(getExecutionContextKey(BUNDLE));
+        bundleCount = executionContext.getInt(getExecutionContextKey(BUNDLE_COUNT));
+        openBundle(executionContext.getLong(getExecutionContextKey(DATA_POSITION)),
+          executionContext.getLong(getExecutionContextKey(INDEX_POSITION)));
+      } else {
+        deleteBundles();
+        bundle = 0;
+        bundleCount = 0;
+        openBundle(0, 0);
+      }
+    } catch (IOException e) {
+      throw new ItemStreamException("Could not open statement bundle in " + directory, e);
+    }
+  }
+
+  private String renderHeader() throws IOException {
+    if (headerCallback == null) {
+      return "";
+    }
+    StringWriter output = new StringWriter();
+    headerCallback.writeHeader(output);
+    output.write(lineSeparator);
+    return output.toString();
+  }
+
+  // the bundles of an earlier run with the same prefix, prefix-00000.stmt and so on, not those of longer prefixes
+  private void deleteBundles() throws IOException {
+    Pattern bundleFile = Pattern.compile(Pattern.quote(prefix) + "-\\d{5,}(" + Pattern.quote(DATA_SUFFIX) + "|" +
+      Pattern.quote(INDEX_SUFFIX) + ")");
+    try (DirectoryStream<Path> files = Files.newDirectoryStream(directory,
+      file -> bundleFile.matcher(file.getFileName().toString()).matches())) {
+      for (Path file : files) {
+        Files.delete(file);
+      }
+    }
+  }
+
+  // replaces the manifest in one move, a reader sees either the old or the new one
+  private void writeManifest() throws IOException {
+    Path manifest = directory.resolve(prefix + MANIFEST_SUFFIX);
+    Path temporary = directory.resolve(prefix + MANIFEST_SUFFIX + ".tmp");
+    String content = MANIFEST_RUN + "=" + runId + "\n" + MANIFEST_BUNDLES + "=" + (bundle + 1) + "\n";
+    Files.write(temporary, content.getBytes(StandardCharsets.ISO_8859_1));
+    Files.move(temporary, manifest, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+  }
+
+  private void openBundle(long dataStart, long indexStart) throws IOException {
+    String name = bundleName(prefix, bundle);
+    dataChannel = open(directory.resolve(name + DATA_SUFFIX), dataStart);
+    indexChannel = open(directory.resolve(name + INDEX_SUFFIX), indexStart);
+    dataPosition = dataStart;
+    indexPosition = indexStart;
+    writeManifest();
+  }
+
+  private static FileChannel open(Path file, long position) throws IOException {
+    FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+    channel.truncate(position);
+    channel.position(position);
+    return channel;
+  }
+
+  @Override
+  public void write(List<? extends Statement> items) throws Exception {
+    for (Statement statement : items) {
+      if (bundleCount == statementsPerBundle) {
+        nextBundle();
+      }
+      long offset = dataPosition + dataBuffer.position();
+      statementChars.start();
+      statementChars.write(header);
+      renderer.render(statement, statementChars);
+      statementChars.write(lineSeparator);
+      int length = statementChars.finish();
+
+      if (indexBuffer.remaining() < INDEX_RECORD_SIZE) {
+        indexPosition += drain(indexBuffer, indexChannel);
+      }
+      indexBuffer.putLong(statement.getCustomer().getId()).putLong(offset).putInt(length);
+      bundleCount++;
+    }
+    flushBuffers();
+  }
+
+  // encodes rendered chars into the data buffer, writing the buffer out whenever it fills up;
+  // before the end of the input a split surrogate pair is left in the input for the next call
+  private int encode(CharBuffer input, boolean endOfInput) throws IOException {
+    int length = 0;
+    while (true) {
+      int start = dataBuffer.position();
+      CoderResult result = encoder.encode(input, dataBuffer, endOfInput);
+      length += dataBuffer.position() - start;
+      if (result.isOverflow()) {
+        dataPosition += drain(dataBuffer, dataChannel);
+      } else if (result.isUnderflow()) {
+        break;
+      } else {
+        throw new CharacterCodingException();
+      }
+    }
+    if (!endOfInput) {
+      return length;
+    }
+    int start = dataBuffer.position();
+    while (encoder.flush(dataBuffer).isOverflow()) {
+      length += dataBuffer.position() - start;
+      dataPosition += drain(dataBuffer, dataChannel);
+      start = dataBuffer.position();
+    }
+    length += dataBuffer.position() - start;
+    return length;
+  }
+
+  private static int drain(ByteBuffer buffer, FileChannel channel) throws IOException {
+    buffer.flip();
+    int written = buffer.remaining();
+    while (buffer.hasRemaining()) {
+      channel.write(buffer);
+    }
+    buffer.clear();
+    return written;
+  }
+
+  private void flushBuffers() throws IOException {
+    dataPosition += drain(dataBuffer, dataChannel);
+    indexPosition += drain(indexBuffer, indexChannel);
+  }
+
+  private void nextBundle() throws IOException {
+    flushBuffers();
+    closeChannels();
+    bundle++;
+    bundleCount = 0;
+    openBundle(0, 0);
+  }
+
+  @Override
+  public void update(ExecutionContext executionContext) {
+    super.update(executionContext);
+    executionContext.putInt(getExecutionContextKey(BUNDLE), bundle);
+    executionContext.putInt(getExecutionContextKey(BUNDLE_COUNT), bundleCount);
+    executionContext.putLong(getExecutionContextKey(DATA_POSITION), dataPosition);
+    executionContext.putLong(getExecutionContextKey(INDEX_POSITION), indexPosition);
+  }
+
+  @Override
+  public void close() {
+    super.close();
+    try {
+      if (dataChannel != null) {
+        flushBuffers();
+      }
+      closeChannels();
+    } catch (IOException e) {
+      throw new ItemStreamException("Could not close statement bundle " + bundleName(prefix, bundle), e);
+    }
+  }
+
+  private void closeChannels() throws IOException {
+    try {
+      if (dataChannel != null) {
+        dataChannel.close();
+      }
+    } finally {
+      if (indexChannel != null) {
+        indexChannel.close();
+      }
+      dataChannel = null;
+      indexChannel = null;
+    }
+  }
+
+  // gives the encoder the rendered chars without copying them; a statement longer than SPILL_SIZE chars, like a
+  // streamed one, is encoded in pieces while it is rendered, so the buffer does not grow with the statement
+  private final class StatementBuffer extends CharArrayWriter {
+
+    private static final int SPILL_SIZE = 64 * 1024;
+
+    private int length;
+
+    private StatementBuffer() {
+      super(8 * 1024);
+    }
+
+    private void start() {
+      reset();
+      encoder.reset();
+      length = 0;
+    }
+
+    private int finish() throws IOException {
+      length = Math.addExact(length, encode(CharBuffer.wrap(buf, 0, count), true));
+      return length;
+    }
+
+    @Override
+    public void write(int c) {
+      super.write(c);
+      spill();
+    }
+
+    @Override
+    public void write(char[] c, int off, int len) {
+      super.write(c, off, len);
+      spill();
+    }
+
+    @Override
+    public void write(String str, int off, int len) {
+      super.write(str, off, len);
+      spill();
+    }
+
+    private void spill() {
+      if (count < SPILL_SIZE) {
+        return;
+      }
+      CharBuffer chars = CharBuffer.wrap(buf, 0, count);
+      try {
+        length = Math.addExact(length, encode(chars, false));
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+      int remaining = chars.remaining();
+      System.arraycopy(buf, chars.position(), buf, 0, remaining);
+      count = remaining;
+    }
+  }
+}
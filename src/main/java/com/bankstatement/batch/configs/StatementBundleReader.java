@@ -0,0 +1,165 @@
+package com.bankstatement.batch.configs;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+
+/***
+ * Finds single statements in the bundles written by StatementBundleItemWriter, for print and email.
+ * Only the bundles listed in the manifests of the latest run of the directory are read, bundles left over from
+ * earlier runs are ignored. Their index files are loaded once into primitive arrays sorted by customer id,
+ * a lookup is then a binary search and one positioned read from the bundle data file.
+ */
+public class StatementBundleReader {
+
+  private final Path[] dataFiles;
+  private final long[] customerIds;
+  private final int[] bundles;
+  private final long[] offsets;
+  private final int[] lengths;
+
+  public StatementBundleReader(Path directory) throws IOException {
+    List<Path> indexFiles = currentIndexFiles(directory);
+
+    long entries = 0;
+    for (Path indexFile : indexFiles) {
+      entries += Files.size(indexFile) / StatementBundleItemWriter.INDEX_RECORD_SIZE;
+    }
+    if (entries > Integer.MAX_VALUE) {
+      throw new IllegalStateException("Too many statements in " + directory + ": " + entries);
+    }
+
+    dataFiles = new Path[indexFiles.size()];
+    customerIds = new long[(int) entries];
+    bundles = new int[(int) entries];
+    offsets = new long[(int) entries];
+    lengths = new int[(int) entries];
+
+    int entry = 0;
+    for (int bundle = 0; bundle < indexFiles.size(); bundle++) {
+      Path indexFile = indexFiles.get(bundle);
+      String name = indexFile.getFileName().toString();
+      dataFiles[bundle] = indexFile.resolveSibling(
+        name.substring(0, name.length() - StatementBundleItemWriter.INDEX_SUFFIX.length()) + StatementBundleItemWriter.DATA_SUFFIX);
+
+      ByteBuffer index = ByteBuffer.wrap(Files.readAllBytes(indexFile));
+      while (index.remaining() >= StatementBundleItemWriter.INDEX_RECORD_SIZE) {
+        customerIds[entry] = index.getLong();
+        offsets[entry] = index.getLong();
+        lengths[entry] = index.getInt();
+        bundles[entry] = bundle;
+        entry++;
+      }
+    }
+    sort(0, entry - 1);
+  }
+
+  // the index files of the manifests with the highest run id
+  private static List<Path> currentIndexFiles(Path directory) throws IOException {
+    List<Path> indexFiles = new ArrayList<>();
+    long currentRun = Long.MIN_VALUE;
+    try (DirectoryStream<Path> manifests = Files.newDirectoryStream(directory, "*" + StatementBundleItemWriter.MANIFEST_SUFFIX)) {
+      for (Path manifest : manifests) {
+        Properties properties = new Properties();
+        try (Reader reader = Files.newBufferedReader(manifest, StandardCharsets.ISO_8859_1)) {
+          properties.load(reader);
+        }
+        long run = Long.parseLong(properties.getProperty(StatementBundleItemWriter.MANIFEST_RUN));
+        int bundles = Integer.parseInt(properties.getProperty(StatementBundleItemWriter.MANIFEST_BUNDLES));
+        if (run < currentRun) {
+          continue;
+        }
+        if (run > currentRun) {
+          currentRun = run;
+          indexFiles.clear();
+        }
+        String name = manifest.getFileName().toString();
+        String prefix = name.substring(0, name.length() - StatementBundleItemWriter.MANIFEST_SUFFIX.length());
+        for (int bundle = 0; bundle < bundles; bundle++) {
+          indexFiles.add(directory.resolve(StatementBundleItemWriter.bundleName(prefix, bundle) + StatementBundleItemWriter.INDEX_SUFFIX));
+        }
+      }
+    }
+    indexFiles.sort(null);
+    return indexFiles;
+  }
+
+  public int size() {
+    return customerIds.length;
+  }
+
+  /***
+   * Returns the statement of the customer, or null when the bundles have no statement for it.
+   */
+  public String find(long customerId) throws IOException {
+    int entry = Arrays.binarySearch(customerIds, customerId);
+    if (entry < 0) {
+      return null;
+    }
+    ByteBuffer statement = ByteBuffer.allocate(lengths[entry]);
+    try (FileChannel channel = FileChannel.open(dataFiles[bundles[entry]], StandardOpenOption.READ)) {
+      long position = offsets[entry];
+      while (statement.hasRemaining()) {
+        int read = channel.read(statement, position);
+        if (read < 0) {
+          throw new IOException("Statement bundle " + dataFiles[bundles[entry]] + " is shorter than its index");
+        }
+        position += read;
+      }
+    }
+    return new String(statement.array(), StandardCharsets.UTF_8);
+  }
+
+  // quicksort of the parallel arrays by customer id
+  private void sort(int low, int high) {
+    while (low < high) {
+      long pivot = customerIds[(low + high) >>> 1];
+      int i = low;
+      int j = high;
+      while (i <= j) {
+        while (customerIds[i] < pivot) {
+          i++;
+        }
+        while (customerIds[j] > pivot) {
+          j--;
+        }
+        if (i <= j) {
+          swap(i++, j--);
+        }
+      }
+      // recurse into the smaller half to keep the stack shallow
+      if (j - low < high - i) {
+        sort(low, j);
+        low = i;
+      } else {
+        sort(i, high);
+        high = j;
+      }
+    }
+  }
+
+  private void swap(int i, int j) {
+    long customerId = customerIds[i];
+    customerIds[i] = customerIds[j];
+    customerIds[j] = customerId;
+    int bundle = bundles[i];
+    bundles[i] = bundles[j];
+    bundles[j] = bundle;
+    long offset = offsets[i];
+    offsets[i] = offsets[j];
+    offsets[j] = offset;
+    int length = lengths[i];
+    lengths[i] = lengths[j];
+    lengths[j] = length;
+  }
+}
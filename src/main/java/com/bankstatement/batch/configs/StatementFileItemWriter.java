@@ -0,0 +1,127 @@
+package com.bankstatement.batch.configs;
+
+import com.bankstatement.batch.domain.Statement;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.batch.item.ItemStreamException;
+import org.springframework.batch.item.file.FlatFileHeaderCallback;
+import org.springframework.batch.item.file.ResourceAwareItemWriterItemStream;
+import org.springframework.batch.item.support.AbstractItemStreamItemWriter;
+import org.springframework.core.io.Resource;
+import org.springframework.util.Assert;
+import org.springframework.util.ClassUtils;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+/***
+ * Writes statements to a file through a StatementRenderer and a buffered channel writer,
+ * without building a String per statement like FlatFileItemWriter with StatementLineAggregator does.
+ * The file content is the same: the header, a line separator, then every statement followed by a line separator.
+ * The buffer is flushed at the end of every chunk and the file position is saved, a restart truncates the file back to it.
+ * Streamed statements go through the buffer row by row, see StatementRenderer.
+ */
+public class StatementFileItemWriter extends AbstractItemStreamItemWriter<Statement>
+  implements ResourceAwareItemWriterItemStream<Statement> {
+
+  private static final String RESTART_POSITION = "position";
+  private static final int BUFFER_SIZE = 64 * 1024;
+
+  private final StatementRenderer renderer = new StatementRenderer();
+  private final String lineSeparator = System.getProperty("line.separator");
+
+  private Resource resource;
+  private FlatFileHeaderCallback headerCallback;
+
+  private FileChannel channel;
+  private Writer writer;
+
+  public StatementFileItemWriter() {
+    setName(ClassUtils.getShortName(StatementFileItemWriter.class));
+  }
+
+  @Override
+  public void setResource(Resource resource) {
+    this.resource = resource;
+  }
+
+  public void setHeaderCallback(FlatFileHeaderCallback headerCallback) {
+    this.headerCallback = headerCallback;
+  }
+
+  public void setAccountRowSource(AccountRowSource accountRowSource) {
+    renderer.setAccountRowSource(accountRowSource);
+  }
+
+  @Override
+  public void open(ExecutionContext executionContext) throws ItemStreamException {
+    super.open(executionContext);
+    Assert.notNull(resource, "The resource must be set");
+    String positionKey = getExecutionContextKey(RESTART_POSITION);
+    boolean restarted = executionContext.containsKey(positionKey);
+    try {
+      Path path = resource.getFile().toPath();
+      if (path.getParent() != null) {
+        Files.createDirectories(path.getParent());
+      }
+      channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+      long position = restarted ? executionContext.getLong(positionKey) : 0;
+      channel.truncate(position);
+      channel.position(position);
+      writer = new BufferedWriter(Channels.newWriter(channel, StandardCharsets.UTF_8.newEncoder(), BUFFER_SIZE), BUFFER_SIZE);
+
+      if (!restarted && headerCallback != null) {
+        headerCallback.writeHeader(writer);
+        writer.write(lineSeparator);
+      }
+    } catch (IOException e) {
+      throw new ItemStreamException("Could not open statement file: " + resource, e);
+    }
+  }
+
+  @Override
+  public void write(List<? extends Statement> items) throws Exception {
+    for (Statement statement : items) {
+      renderer.render(statement, writer);
+      writer.write(lineSeparator);
+    }
+    writer.flush();
+  }
+
+  @Override
+  public void update(ExecutionContext executionContext) {
+    super.update(executionContext);
+    if (channel == null) {
+      return;
+    }
+    try {
+      writer.flush();
+      executionContext.putLong(getExecutionContextKey(RESTART_POSITION), channel.position());
+    } catch (IOException e) {
+      throw new ItemStreamException("Could not read the statement file position: " + resource, e);
+    }
+  }
+
+  @Override
+  public void close() {
+    super.close();
+    if (writer == null) {
+      return;
+    }
+    try {
+      writer.close();
+    } catch (IOException e) {
+      throw new ItemStreamException("Could not close statement file: " + resource, e);
+    } finally {
+      writer = null;
+      channel = null;
+    }
+  }
+}
@@ -7,7 +7,6 @@ import com.bankstatement.batch.domain.Transaction;
 import org.springframework.batch.item.file.transform.LineAggregator;
 import org.springframework.util.CollectionUtils;
 
-import java.math.BigDecimal;
 import java.util.Date;
 
 public class StatementLineAggregator implements LineAggregator<Statement> {
@@ -21,6 +20,8 @@ public class StatementLineAggregator implements LineAggregator<Statement> {
   private static final String STATEMENT_DATE_LINE =
     String.format("Your Account Summary %78s ", "Statement Period") + "%tD to %tD\n\n";
 
+  private final TimestampCodec timestampCodec = TimestampCodec.systemDefault();
+
   public String aggregate(Statement statement) {
     StringBuilder output = new StringBuilder();
 
@@ -40,25 +41,20 @@ public class StatementLineAggregator implements LineAggregator<Statement> {
             account.getLastStatementDate(),
             new Date()));
 
-        BigDecimal creditAmount = new BigDecimal(0);
-        BigDecimal debitAmount = new BigDecimal(0);
+        long creditCents = 0;
+        long debitCents = 0;
         for (Transaction transaction : account.getTransactions()) {
-          if (transaction.getCredit() != null) {
-            creditAmount = creditAmount.add(transaction.getCredit());
-          }
-
-          if (transaction.getDebit() != null) {
-            debitAmount = debitAmount.add(transaction.getDebit());
-          }
+          creditCents = Money.add(creditCents, transaction.getCreditCents());
+          debitCents = Money.add(debitCents, transaction.getDebitCents());
 
-          output.append(String.format("               %tD          %-50s    %8.2f\n",
-            transaction.getTimestamp(),
+          output.append(String.format("               %s          %-50s    %8.2f\n",
+            timestampCodec.formatShortDate(transaction.getTimestamp()),
             transaction.getDescription(),
-            transaction.getTransactionAmount()));
+            Money.toBigDecimal(transaction.getTransactionAmountCents())));
         }
 
-        output.append(String.format("%80s %14.2f\n", "Total Debit:", debitAmount));
-        output.append(String.format("%81s %13.2f\n", "Total Credit:", creditAmount));
+        output.append(String.format("%80s %14.2f\n", "Total Debit:", Money.toBigDecimal(debitCents)));
+        output.append(String.format("%81s %13.2f\n", "Total Credit:", Money.toBigDecimal(creditCents)));
         output.append(String.format("%76s %18.2f\n\n", "Balance:", account.getBalance()));
       }
     }
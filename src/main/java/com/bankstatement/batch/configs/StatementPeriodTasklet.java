@@ -0,0 +1,44 @@
+package com.bankstatement.batch.configs;
+
+import org.springframework.batch.core.StepContribution;
+import org.springframework.batch.core.scope.context.ChunkContext;
+import org.springframework.batch.core.step.tasklet.Tasklet;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.batch.repeat.RepeatStatus;
+
+/***
+ * Fixes the end of the statement period for incremental statements in the job ExecutionContext.
+ * Each account's period runs from its last_statement_date up to this end: the statement readers only pick customers
+ * with transactions in their period, the transaction queries only fetch the period, and AdvanceStatementDateTasklet
+ * moves last_statement_date up to it once the statements are written.
+ * A restarted job keeps the end of its first run, so it generates the same statements.
+ */
+public class StatementPeriodTasklet implements Tasklet {
+
+  public static final String PERIOD_END = "statementPeriodEnd";
+
+  /***
+   * Join condition for the transactions of account a in its statement period, the period end is a parameter.
+   */
+  public static final String TRANSACTION_IN_PERIOD = "t.timestamp > a.last_statement_date and t.timestamp <= ?";
+
+  /***
+   * Condition that the customer has an account with transactions in its statement period, the period end is a parameter.
+   */
+  public static String activeCustomer(String customerIdColumn) {
+    return "exists (select 1 from customer_account pca " +
+      "join account pa on pa.account_id = pca.account_account_id " +
+      "join transaction pt on pt.account_account_id = pa.account_id " +
+      "where pca.customer_customer_id = " + customerIdColumn + " " +
+      "and pt.timestamp > pa.last_statement_date and pt.timestamp <= ?)";
+  }
+
+  @Override
+  public RepeatStatus execute(StepContribution contribution, ChunkContext chunkContext) {
+    ExecutionContext jobContext = chunkContext.getStepContext().getStepExecution().getJobExecution().getExecutionContext();
+    if (!jobContext.containsKey(PERIOD_END)) {
+      jobContext.putLong(PERIOD_END, System.currentTimeMillis());
+    }
+    return RepeatStatus.FINISHED;
+  }
+}
@@ -0,0 +1,307 @@
+package com.bankstatement.batch.configs;
+
+import com.bankstatement.batch.domain.Account;
+import com.bankstatement.batch.domain.Customer;
+import com.bankstatement.batch.domain.Statement;
+import com.bankstatement.batch.domain.Transaction;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.util.Assert;
+import org.springframework.util.CollectionUtils;
+import org.springframework.util.StringUtils;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.text.DecimalFormatSymbols;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.Locale;
+
+/***
+ * Writes a statement straight to a Writer, with the same output as StatementLineAggregator.
+ * The fixed width labels and padding are precomputed, and amounts are formatted from their unscaled value
+ * into a scratch buffer instead of going through String.format.
+ * The scratch buffer makes an instance single threaded, every item writer gets its own renderer.
+ * A streamed statement is rendered row by row from its AccountRowSource, with only the totals of the current account
+ * in memory, so the size of an account does not matter.
+ */
+public class StatementRenderer {
+
+  private static final String ADDRESS_LINE_ONE =
+    String.format("%121s\n", "Apress Banking");
+  private static final String ADDRESS_LINE_TWO =
+    String.format("%120s\n", "1060 West Addison St.");
+  private static final String ADDRESS_LINE_THREE =
+    String.format("%120s\n\n", "Chicago, IL 60613");
+  private static final String STATEMENT_DATE_PREFIX =
+    String.format("Your Account Summary %78s ", "Statement Period");
+  private static final String TRANSACTION_PREFIX = spaces(15);
+  private static final String DESCRIPTION_PREFIX = spaces(10);
+  private static final String AMOUNT_PREFIX = spaces(4);
+  private static final String TOTAL_DEBIT = String.format("%80s ", "Total Debit:");
+  private static final String TOTAL_CREDIT = String.format("%81s ", "Total Credit:");
+  private static final String BALANCE = String.format("%76s ", "Balance:");
+
+  private static final int DESCRIPTION_WIDTH = 50;
+  private static final char[] PADDING = new char[128];
+
+  static {
+    Arrays.fill(PADDING, ' ');
+  }
+
+  private final TimestampCodec timestampCodec = TimestampCodec.systemDefault();
+  private final char zeroDigit;
+  private final char decimalSeparator;
+  private final char[] scratch = new char[64];
+
+  private AccountRowSource accountRowSource;
+
+  public StatementRenderer() {
+    // String.format uses the default format locale for the digits and the decimal separator
+    DecimalFormatSymbols symbols = DecimalFormatSymbols.getInstance(Locale.getDefault(Locale.Category.FORMAT));
+    this.zeroDigit = symbols.getZeroDigit();
+    this.decimalSeparator = symbols.getDecimalSeparator();
+  }
+
+  /***
+   * Streamed statements need the AccountRowSource that left their accounts unloaded.
+   */
+  public void setAccountRowSource(AccountRowSource accountRowSource) {
+    this.accountRowSource = accountRowSource;
+  }
+
+  public void render(Statement statement, Writer out) throws IOException {
+    renderHeader(statement.getCustomer(), out);
+    if (statement.isStreamed()) {
+      renderAccountRows(statement, out);
+    } else {
+      renderAccounts(statement, out);
+    }
+  }
+
+  private void renderHeader(Customer customer, Writer out) throws IOException {
+    out.write('\n');
+    int length = 1 + write(out, customer.getFirstName());
+    out.write(' ');
+    length += 1 + write(out, customer.getLastName());
+    writeFrom(out, ADDRESS_LINE_ONE, length);
+
+    out.write(customer.getAddress1());
+    writeFrom(out, ADDRESS_LINE_TWO, customer.getAddress1().length());
+
+    length = write(out, customer.getCity());
+    out.write(", ");
+    length += 2 + write(out, customer.getState());
+    out.write(' ');
+    length += 1 + write(out, customer.getPostalCode());
+    writeFrom(out, ADDRESS_LINE_THREE, length);
+  }
+
+  private void renderAccounts(Statement statement, Writer out) throws IOException {
+    if (CollectionUtils.isEmpty(statement.getAccounts())) {
+      return;
+    }
+
+    for (Account account : statement.getAccounts()) {
+      renderAccountHeader(account.getLastStatementDate(), out);
+
+      long creditCents = 0;
+      long debitCents = 0;
+      for (Transaction transaction : account.getTransactions()) {
+        creditCents = Money.add(creditCents, transaction.getCreditCents());
+        debitCents = Money.add(debitCents, transaction.getDebitCents());
+        renderTransaction(transaction.getTimestamp(), transaction.getDescription(), transaction.getTransactionAmountCents(), out);
+      }
+
+      renderAccountFooter(debitCents, creditCents, account.getBalance(), out);
+    }
+  }
+
+  // the rows go through the same steps as AccountResultSetExtractor, keeping only the totals of the current account
+  private void renderAccountRows(Statement statement, Writer out) throws IOException {
+    Assert.state(accountRowSource != null, "Streamed statements need an AccountRowSource");
+    AccountRowRenderer rowRenderer = new AccountRowRenderer(out);
+    try {
+      accountRowSource.streamAccountRows(statement, rowRenderer);
+    } catch (UncheckedIOException e) {
+      throw e.getCause();
+    }
+    rowRenderer.finish();
+  }
+
+  private void renderAccountHeader(Date lastStatementDate, Writer out) throws IOException {
+    out.write(STATEMENT_DATE_PREFIX);
+    timestampCodec.appendShortDate(out, lastStatementDate);
+    out.write(" to ");
+    timestampCodec.appendShortDate(out, System.currentTimeMillis());
+    out.write("\n\n");
+  }
+
+  private void renderTransaction(Date timestamp, String description, long amountCents, Writer out) throws IOException {
+    out.write(TRANSACTION_PREFIX);
+    timestampCodec.appendShortDate(out, timestamp);
+    out.write(DESCRIPTION_PREFIX);
+    int length = write(out, description);
+    pad(out, DESCRIPTION_WIDTH - length);
+    out.write(AMOUNT_PREFIX);
+    writeAmount(out, amountCents, 8);
+    out.write('\n');
+  }
+
+  private void renderAccountFooter(long debitCents, long creditCents, BigDecimal balance, Writer out) throws IOException {
+    out.write(TOTAL_DEBIT);
+    writeAmount(out, debitCents, 14);
+    out.write('\n');
+    out.write(TOTAL_CREDIT);
+    writeAmount(out, creditCents, 13);
+    out.write('\n');
+    out.write(BALANCE);
+    writeAmount(out, balance, 18);
+    out.write("\n\n");
+  }
+
+  /***
+   * Same output as %{width}.2f: rounded half up to two decimals, right aligned, and the sign of the unrounded value.
+   */
+  void writeAmount(Writer out, BigDecimal amount, int width) throws IOException {
+    if (amount == null) {
+      pad(out, width - 4);
+      out.write("null");
+      return;
+    }
+    BigDecimal scaled = amount.setScale(2, RoundingMode.HALF_UP);
+    if (scaled.unscaledValue().bitLength() > 62) {
+      String text = String.format("%" + width + ".2f", amount);
+      out.write(text);
+      return;
+    }
+    writeCents(out, Math.abs(scaled.unscaledValue().longValue()), amount.signum() < 0, width);
+  }
+
+  void writeAmount(Writer out, long cents, int width) throws IOException {
+    writeCents(out, Math.abs(cents), cents < 0, width);
+  }
+
+  void writeCents(Writer out, long absoluteCents, boolean negative, int width) throws IOException {
+    char[] buffer = scratch;
+    int position = buffer.length;
+    long value = absoluteCents;
+    buffer[--position] = digit(value % 10);
+    value /= 10;
+    buffer[--position] = digit(value % 10);
+    value /= 10;
+    buffer[--position] = decimalSeparator;
+    do {
+      buffer[--position] = digit(value % 10);
+      value /= 10;
+    } while (value != 0);
+    if (negative) {
+      buffer[--position] = '-';
+    }
+    int length = buffer.length - position;
+    pad(out, width - length);
+    out.write(buffer, position, length);
+  }
+
+  private char digit(long value) {
+    return (char) (zeroDigit + value);
+  }
+
+  private static int write(Writer out, String value) throws IOException {
+    String text = value != null ? value : "null";
+    out.write(text);
+    return text.length();
+  }
+
+  // the remainder of a right aligned line, like line.substring(from)
+  private static void writeFrom(Writer out, String line, int from) throws IOException {
+    if (from > line.length()) {
+      throw new StringIndexOutOfBoundsException("begin " + from + ", end " + line.length() + ", length " + line.length());
+    }
+    out.write(line, from, line.length() - from);
+  }
+
+  private static void pad(Writer out, int count) throws IOException {
+    while (count > 0) {
+      int length = Math.min(count, PADDING.length);
+      out.write(PADDING, 0, length);
+      count -= length;
+    }
+  }
+
+  private static String spaces(int count) {
+    char[] spaces = new char[count];
+    Arrays.fill(spaces, ' ');
+    return new String(spaces);
+  }
+
+  // renders every row as it arrives, an account block is closed when the account id changes
+  private final class AccountRowRenderer implements RowCallbackHandler {
+
+    private final Writer out;
+
+    private int accountIdColumn;
+    private int balanceColumn;
+    private int lastStatementDateColumn;
+    private int descriptionColumn;
+    private int creditColumn;
+    private int debitColumn;
+    private int timestampColumn;
+
+    private boolean inAccount;
+    private long accountId;
+    private BigDecimal balance;
+    private long creditCents;
+    private long debitCents;
+
+    private AccountRowRenderer(Writer out) {
+      this.out = out;
+    }
+
+    @Override
+    public void processRow(ResultSet rs) throws SQLException {
+      if (!inAccount) {
+        accountIdColumn = rs.findColumn("account_id");
+        balanceColumn = rs.findColumn("balance");
+        lastStatementDateColumn = rs.findColumn("last_statement_date");
+        descriptionColumn = rs.findColumn("description");
+        creditColumn = rs.findColumn("credit");
+        debitColumn = rs.findColumn("debit");
+        timestampColumn = rs.findColumn("timestamp");
+      }
+      try {
+        long rowAccountId = rs.getLong(accountIdColumn);
+        if (!inAccount || rowAccountId != accountId) {
+          finish();
+          inAccount = true;
+          accountId = rowAccountId;
+          balance = rs.getBigDecimal(balanceColumn);
+          creditCents = 0;
+          debitCents = 0;
+          renderAccountHeader(rs.getDate(lastStatementDateColumn), out);
+        }
+
+        String description = rs.getString(descriptionColumn);
+        if (StringUtils.hasText(description)) {
+          long rowCreditCents = Money.toCents(rs.getBigDecimal(creditColumn));
+          long rowDebitCents = Money.toCents(rs.getBigDecimal(debitColumn));
+          creditCents = Money.add(creditCents, rowCreditCents);
+          debitCents = Money.add(debitCents, rowDebitCents);
+          renderTransaction(rs.getTimestamp(timestampColumn), description, Money.add(rowCreditCents, rowDebitCents), out);
+        }
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    }
+
+    private void finish() throws IOException {
+      if (inAccount) {
+        renderAccountFooter(debitCents, creditCents, balance, out);
+      }
+    }
+  }
+}
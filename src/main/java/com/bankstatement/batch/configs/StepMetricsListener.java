@@ -0,0 +1,265 @@
+package com.bankstatement.batch.configs;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.batch.core.ChunkListener;
+import org.springframework.batch.core.ExitStatus;
+import org.springframework.batch.core.ItemProcessListener;
+import org.springframework.batch.core.ItemReadListener;
+import org.springframework.batch.core.ItemWriteListener;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.StepExecutionListener;
+import org.springframework.batch.core.scope.context.ChunkContext;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/***
+ * Records chunk and item metrics of a chunk oriented step in a MeterRegistry, tagged with the step name:
+ * the time each chunk spends reading, processing and writing, the whole chunk including the commit,
+ * the items written per chunk (the JDBC batch size of the JdbcBatchItemWriter steps) and counters of the items
+ * read, filtered and written, which the logging registry reports as items per second.
+ *
+ * The async statement steps process and write futures, a future of null is a filtered item: it is counted as
+ * filtered when it is written, not as written.
+ *
+ * One listener can be shared by every step, also by the workers of a partitioned step, since a chunk always runs
+ * on one thread: the timings of the running chunk are kept per thread. Partition names are left out of the tag,
+ * so the workers of a partitioned step report together.
+ */
+public class StepMetricsListener implements StepExecutionListener, ChunkListener,
+  ItemReadListener<Object>, ItemProcessListener<Object, Object>, ItemWriteListener<Object> {
+
+  private static final Logger logger = LoggerFactory.getLogger(StepMetricsListener.class);
+
+  private final MeterRegistry registry;
+  private final Map<String, StepMeters> stepMeters = new ConcurrentHashMap<>();
+  private final ThreadLocal<ChunkTimes> chunkTimes = new ThreadLocal<>();
+
+  public StepMetricsListener(MeterRegistry registry) {
+    this.registry = registry;
+  }
+
+  @Override
+  public void beforeStep(StepExecution stepExecution) {
+    String step = stepName(stepExecution.getStepName());
+    chunkTimes.set(new ChunkTimes(stepMeters.computeIfAbsent(step, StepMeters::new)));
+  }
+
+  // the registry reports per interval, this summary also covers steps shorter than one interval
+  @Override
+  public ExitStatus afterStep(StepExecution stepExecution) {
+    ChunkTimes times = chunkTimes.get();
+    chunkTimes.remove();
+    long millis = System.currentTimeMillis() - stepExecution.getStartTime().getTime();
+    logger.info("Step {}: {} items read, {} filtered, {} written in {} ms ({} items/s)", stepExecution.getStepName(),
+      stepExecution.getReadCount(), stepExecution.getFilterCount(), stepExecution.getWriteCount(), millis,
+      millis > 0 ? stepExecution.getWriteCount() * 1000L / millis : 0);
+    if (times != null && times.chunks > 0) {
+      logger.info("Step {}: {} chunks, {} ms in chunks: {} ms read, {} ms process, {} ms write", stepExecution.getStepName(),
+        times.chunks, TimeUnit.NANOSECONDS.toMillis(times.totalChunk), TimeUnit.NANOSECONDS.toMillis(times.totalRead),
+        TimeUnit.NANOSECONDS.toMillis(times.totalProcess), TimeUnit.NANOSECONDS.toMillis(times.totalWrite));
+    }
+    return stepExecution.getExitStatus();
+  }
+
+  @Override
+  public void beforeChunk(ChunkContext context) {
+    ChunkTimes times = chunkTimes.get();
+    if (times != null) {
+      times.reset();
+    }
+  }
+
+  @Override
+  public void afterChunk(ChunkContext context) {
+    ChunkTimes times = chunkTimes.get();
+    if (times != null) {
+      times.record();
+    }
+  }
+
+  @Override
+  public void afterChunkError(ChunkContext context) {
+    ChunkTimes times = chunkTimes.get();
+    if (times != null) {
+      times.meters.chunkErrors.increment();
+    }
+  }
+
+  @Override
+  public void beforeRead() {
+    ChunkTimes times = chunkTimes.get();
+    if (times != null) {
+      times.start = System.nanoTime();
+    }
+  }
+
+  @Override
+  public void afterRead(Object item) {
+    ChunkTimes times = chunkTimes.get();
+    if (times != null) {
+      times.read += System.nanoTime() - times.start;
+      times.meters.read.increment();
+    }
+  }
+
+  @Override
+  public void onReadError(Exception ex) {
+    ChunkTimes times = chunkTimes.get();
+    if (times != null) {
+      times.read += System.nanoTime() - times.start;
+    }
+  }
+
+  @Override
+  public void beforeProcess(Object item) {
+    ChunkTimes times = chunkTimes.get();
+    if (times != null) {
+      times.start = System.nanoTime();
+    }
+  }
+
+  @Override
+  public void afterProcess(Object item, Object result) {
+    ChunkTimes times = chunkTimes.get();
+    if (times != null) {
+      times.process += System.nanoTime() - times.start;
+      if (result == null) {
+        times.meters.filtered.increment();
+      }
+    }
+  }
+
+  @Override
+  public void onProcessError(Object item, Exception e) {
+    ChunkTimes times = chunkTimes.get();
+    if (times != null) {
+      times.process += System.nanoTime() - times.start;
+    }
+  }
+
+  @Override
+  public void beforeWrite(List<?> items) {
+    ChunkTimes times = chunkTimes.get();
+    if (times != null) {
+      times.start = System.nanoTime();
+      times.meters.writeItems.record(items.size());
+    }
+  }
+
+  @Override
+  public void afterWrite(List<?> items) {
+    ChunkTimes times = chunkTimes.get();
+    if (times != null) {
+      times.write += System.nanoTime() - times.start;
+      int filtered = filteredFutures(items);
+      times.meters.written.increment(items.size() - filtered);
+      times.meters.filtered.increment(filtered);
+    }
+  }
+
+  // the futures are done once FutureItemWriter wrote them
+  private static int filteredFutures(List<?> items) {
+    int filtered = 0;
+    for (Object item : items) {
+      if (item instanceof Future && ((Future<?>) item).isDone()) {
+        try {
+          if (((Future<?>) item).get() == null) {
+            filtered++;
+          }
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          return filtered;
+        } catch (ExecutionException e) {
+          // a failed item fails the write, afterWrite is not called for it
+        }
+      }
+    }
+    return filtered;
+  }
+
+  @Override
+  public void onWriteError(Exception exception, List<?> items) {
+    ChunkTimes times = chunkTimes.get();
+    if (times != null) {
+      times.write += System.nanoTime() - times.start;
+    }
+  }
+
+  // importTransactionsWorker:partition0 reports as importTransactionsWorker
+  private static String stepName(String stepName) {
+    int partition = stepName.indexOf(':');
+    return partition < 0 ? stepName : stepName.substring(0, partition);
+  }
+
+  private final class StepMeters {
+    private final Timer chunk;
+    private final Timer chunkRead;
+    private final Timer chunkProcess;
+    private final Timer chunkWrite;
+    private final Counter chunkErrors;
+    private final DistributionSummary writeItems;
+    private final Counter read;
+    private final Counter filtered;
+    private final Counter written;
+
+    private StepMeters(String step) {
+      chunk = registry.timer("bankstatement.chunk", "step", step);
+      chunkRead = registry.timer("bankstatement.chunk.read", "step", step);
+      chunkProcess = registry.timer("bankstatement.chunk.process", "step", step);
+      chunkWrite = registry.timer("bankstatement.chunk.write", "step", step);
+      chunkErrors = registry.counter("bankstatement.chunk.errors", "step", step);
+      writeItems = registry.summary("bankstatement.chunk.write.items", "step", step);
+      read = registry.counter("bankstatement.items.read", "step", step);
+      filtered = registry.counter("bankstatement.items.filtered", "step", step);
+      written = registry.counter("bankstatement.items.written", "step", step);
+    }
+  }
+
+  private static final class ChunkTimes {
+    private final StepMeters meters;
+    private long chunkStart;
+    private long start;
+    private long read;
+    private long process;
+    private long write;
+    private long chunks;
+    private long totalChunk;
+    private long totalRead;
+    private long totalProcess;
+    private long totalWrite;
+
+    private ChunkTimes(StepMeters meters) {
+      this.meters = meters;
+    }
+
+    private void reset() {
+      chunkStart = System.nanoTime();
+      read = 0;
+      process = 0;
+      write = 0;
+    }
+
+    private void record() {
+      long chunk = System.nanoTime() - chunkStart;
+      chunks++;
+      totalChunk += chunk;
+      totalRead += read;
+      totalProcess += process;
+      totalWrite += write;
+      meters.chunk.record(chunk, TimeUnit.NANOSECONDS);
+      meters.chunkRead.record(read, TimeUnit.NANOSECONDS);
+      meters.chunkProcess.record(process, TimeUnit.NANOSECONDS);
+      meters.chunkWrite.record(write, TimeUnit.NANOSECONDS);
+    }
+  }
+}
@@ -0,0 +1,154 @@
+package com.bankstatement.batch.configs;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Date;
+
+/***
+ * Thread safe codec for the "yyyy-MM-dd HH:mm:ss" timestamps of the transaction files and the MM/dd/yy dates of the statements.
+ * Parsing is a fixed width parser over the 19 characters, the result of each distinct second is kept in a small direct mapped cache
+ * since the transaction files have long runs of the same timestamps. Formatted MM/dd/yy days are cached the same way.
+ * Cache entries are immutable, so threads can share the codec without locking; a lost cache write only costs a recomputation.
+ */
+public class TimestampCodec {
+
+  public static final String PATTERN = "yyyy-MM-dd HH:mm:ss";
+
+  private static final int LENGTH = PATTERN.length();
+  private static final int CACHE_SIZE = 1024;
+  private static final int DAY_CACHE_SIZE = 64;
+  private static final long MILLIS_PER_DAY = 86_400_000L;
+
+  private static final TimestampCodec SYSTEM_DEFAULT = new TimestampCodec(ZoneId.systemDefault());
+
+  private final ZoneId zone;
+  private final DateTimeFormatter formatter;
+  private final ParsedTimestamp[] parsed = new ParsedTimestamp[CACHE_SIZE];
+  private final FormattedDay[] formattedDays = new FormattedDay[DAY_CACHE_SIZE];
+
+  public TimestampCodec(ZoneId zone) {
+    this.zone = zone;
+    this.formatter = DateTimeFormatter.ofPattern(PATTERN).withZone(zone);
+  }
+
+  /***
+   * Codec for the JVM default time zone, the zone SimpleDateFormat and String.format use.
+   */
+  public static TimestampCodec systemDefault() {
+    return SYSTEM_DEFAULT;
+  }
+
+  public Date parse(CharSequence text) {
+    return new Date(parseMillis(text));
+  }
+
+  public long parseMillis(CharSequence text) {
+    if (text.length() != LENGTH || text.charAt(4) != '-' || text.charAt(7) != '-' || text.charAt(10) != ' '
+      || text.charAt(13) != ':' || text.charAt(16) != ':') {
+      throw new IllegalArgumentException("Timestamp does not match " + PATTERN + ": " + text);
+    }
+    int year = digits(text, 0, 4);
+    int month = digits(text, 5, 2);
+    int day = digits(text, 8, 2);
+    int hour = digits(text, 11, 2);
+    int minute = digits(text, 14, 2);
+    int second = digits(text, 17, 2);
+
+    long key = ((((year * 100L + month) * 100 + day) * 100 + hour) * 100 + minute) * 100 + second;
+    int slot = (int) (key ^ (key >>> 16)) & (CACHE_SIZE - 1);
+    ParsedTimestamp cached = parsed[slot];
+    if (cached != null && cached.key == key) {
+      return cached.millis;
+    }
+
+    long millis = LocalDateTime.of(year, month, day, hour, minute, second).atZone(zone).toInstant().toEpochMilli();
+    parsed[slot] = new ParsedTimestamp(key, millis);
+    return millis;
+  }
+
+  public String format(Date date) {
+    return formatter.format(date.toInstant());
+  }
+
+  /***
+   * Appends the date as MM/dd/yy, the same output as the %tD conversion of String.format.
+   * A null date is written as "null" like String.format does.
+   */
+  public void appendShortDate(Appendable out, Date date) throws IOException {
+    if (date == null) {
+      out.append("null");
+      return;
+    }
+    appendShortDate(out, date.getTime());
+  }
+
+  public void appendShortDate(Appendable out, long millis) throws IOException {
+    int slot = (int) Math.floorMod(Math.floorDiv(millis, MILLIS_PER_DAY), (long) DAY_CACHE_SIZE);
+    FormattedDay day = formattedDays[slot];
+    if (day == null || millis < day.startMillis || millis >= day.endMillis) {
+      day = formatDay(millis);
+      formattedDays[slot] = day;
+    }
+    out.append(day.text);
+  }
+
+  public String formatShortDate(Date date) {
+    StringBuilder output = new StringBuilder(8);
+    try {
+      appendShortDate(output, date);
+    } catch (IOException e) {
+      throw new IllegalStateException(e);
+    }
+    return output.toString();
+  }
+
+  private FormattedDay formatDay(long millis) {
+    LocalDate date = Instant.ofEpochMilli(millis).atZone(zone).toLocalDate();
+    ZonedDateTime start = date.atStartOfDay(zone);
+    ZonedDateTime end = date.plusDays(1).atStartOfDay(zone);
+    char[] text = {
+      (char) ('0' + date.getMonthValue() / 10), (char) ('0' + date.getMonthValue() % 10), '/',
+      (char) ('0' + date.getDayOfMonth() / 10), (char) ('0' + date.getDayOfMonth() % 10), '/',
+      (char) ('0' + Math.floorMod(date.getYear(), 100) / 10), (char) ('0' + Math.floorMod(date.getYear(), 100) % 10)};
+    return new FormattedDay(start.toInstant().toEpochMilli(), end.toInstant().toEpochMilli(), new String(text));
+  }
+
+  private static int digits(CharSequence text, int start, int count) {
+    int value = 0;
+    for (int i = start; i < start + count; i++) {
+      int digit = text.charAt(i) - '0';
+      if (digit < 0 || digit > 9) {
+        throw new IllegalArgumentException("Timestamp does not match " + PATTERN + ": " + text);
+      }
+      value = value * 10 + digit;
+    }
+    return value;
+  }
+
+  private static final class ParsedTimestamp {
+    private final long key;
+    private final long millis;
+
+    private ParsedTimestamp(long key, long millis) {
+      this.key = key;
+      this.millis = millis;
+    }
+  }
+
+  private static final class FormattedDay {
+    private final long startMillis;
+    private final long endMillis;
+    private final String text;
+
+    private FormattedDay(long startMillis, long endMillis, String text) {
+      this.startMillis = startMillis;
+      this.endMillis = endMillis;
+      this.text = text;
+    }
+  }
+}
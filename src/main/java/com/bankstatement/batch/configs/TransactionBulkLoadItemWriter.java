@@ -0,0 +1,273 @@
+package com.bankstatement.batch.configs;
+
+import com.bankstatement.batch.domain.Transaction;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Metrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.batch.item.ItemWriter;
+import org.springframework.batch.support.DatabaseType;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.IncorrectUpdateSemanticsDataAccessException;
+import org.springframework.dao.PermissionDeniedDataAccessException;
+import org.springframework.jdbc.BadSqlGrammarException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.MetaDataAccessException;
+
+import javax.sql.DataSource;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.SQLWarning;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.Arrays;
+import java.util.List;
+
+/***
+ * Imports a chunk of transactions with one bulk statement instead of a JDBC batch of single row INSERTs.
+ * On HSQLDB the chunk is bound as one array per column and inserted with INSERT ... SELECT FROM UNNEST, on MySQL it is
+ * staged in a temporary tab delimited file and loaded with LOAD DATA LOCAL INFILE, which needs allowLoadLocalInfile=true
+ * on the connection URL and local_infile enabled on the server.
+ *
+ * The load runs on the chunk's connection, so a chunk is still committed or rolled back as a whole and restart works
+ * like the batch writer. Other databases use the fallback writer.
+ *
+ * LOAD DATA LOCAL skips duplicate keys and turns bad values into warnings instead of failing, so a bulk statement that
+ * loads another number of rows than the chunk has, or reports warnings, fails the chunk with an
+ * IncorrectUpdateSemanticsDataAccessException; the loaded rows are rolled back with the chunk.
+ * When a bulk statement fails, the failed statement has changed nothing and the fallback writer writes the chunk.
+ * Only a refused statement, a syntax or privilege error or LOAD DATA LOCAL disabled on the client or the server, makes
+ * bulk load unavailable for the rest of the step; other errors, a duplicate key or a lock timeout, are left to the
+ * fallback writer of that chunk, which fails the chunk when the data is wrong.
+ * A bulk statement costs about as much as a few single row INSERTs, so the gain comes with larger chunks.
+ */
+public class TransactionBulkLoadItemWriter implements ItemWriter<Transaction> {
+
+  private static final Logger logger = LoggerFactory.getLogger(TransactionBulkLoadItemWriter.class);
+
+  private static final String COLUMNS = "TRANSACTION_ID, ACCOUNT_ACCOUNT_ID, DESCRIPTION, CREDIT, DEBIT, TIMESTAMP";
+
+  // the amounts are bound as the BigDecimal the batch writer binds, the database converts them to the column type
+  private static final String AMOUNT_ARRAY = "DECIMAL(128, 32) ARRAY";
+
+  // MySQL error codes of LOAD DATA LOCAL disabled on the server or the client: ER_NOT_ALLOWED_COMMAND, 3948 and 3950
+  // of MySQL 8, and CR_LOAD_DATA_LOCAL_INFILE_REJECTED
+  private static final List<Integer> LOCAL_INFILE_DISABLED = Arrays.asList(1148, 3948, 3950, 2068);
+
+  private static final String UNNEST_INSERT = "INSERT INTO TRANSACTION (" + COLUMNS + ") " +
+    "SELECT * FROM UNNEST(CAST(? AS BIGINT ARRAY), CAST(? AS BIGINT ARRAY), CAST(? AS VARCHAR(255) ARRAY), " +
+    "CAST(? AS " + AMOUNT_ARRAY + "), CAST(? AS " + AMOUNT_ARRAY + "), CAST(? AS TIMESTAMP ARRAY))";
+
+  private static final String UNNEST_INSERT_WITH_BATCH = "INSERT INTO TRANSACTION (" + COLUMNS + ", IMPORT_BATCH_ID) " +
+    "SELECT * FROM UNNEST(CAST(? AS BIGINT ARRAY), CAST(? AS BIGINT ARRAY), CAST(? AS VARCHAR(255) ARRAY), " +
+    "CAST(? AS " + AMOUNT_ARRAY + "), CAST(? AS " + AMOUNT_ARRAY + "), CAST(? AS TIMESTAMP ARRAY), CAST(? AS BIGINT ARRAY))";
+
+  private final JdbcTemplate jdbcTemplate;
+  private final ItemWriter<Transaction> fallback;
+  private final Long importBatchId;
+  private final TimestampCodec timestampCodec = TimestampCodec.systemDefault();
+  // rows per bulk statement, the chunk size
+  private final DistributionSummary batchSize = Metrics.summary("bankstatement.jdbc.batch.size", "writer", "transactionBulkLoad");
+
+  private DatabaseType databaseType;
+  private boolean bulkLoadAvailable = true;
+
+  /***
+   * @param fallback      the batch writer, for databases without a bulk path and when the bulk path is refused
+   * @param importBatchId written to IMPORT_BATCH_ID of every row, or null to leave the column out
+   */
+  public TransactionBulkLoadItemWriter(DataSource dataSource, ItemWriter<Transaction> fallback, Long importBatchId) {
+    this.jdbcTemplate = new JdbcTemplate(dataSource);
+    this.fallback = fallback;
+    this.importBatchId = importBatchId;
+  }
+
+  @Override
+  public void write(List<? extends Transaction> items) throws Exception {
+    if (!bulkLoadAvailable || !bulkLoadSupported()) {
+      fallback.write(items);
+      return;
+    }
+    try {
+      if (databaseType == DatabaseType.HSQL) {
+        insertUnnest(items);
+      } else {
+        loadDataInfile(items);
+      }
+      batchSize.record(items.size());
+    } catch (IncorrectUpdateSemanticsDataAccessException e) {
+      // the statement loaded part of the chunk, only the rollback of the chunk undoes it
+      throw e;
+    } catch (DataAccessException | UncheckedIOException e) {
+      fallback.write(items);
+      if (isBulkLoadUnavailable(e)) {
+        bulkLoadAvailable = false;
+        logger.warn("Bulk load of transactions is not available, the rest of the step uses the batch writer", e);
+      } else {
+        logger.warn("Bulk load of a chunk of transactions failed, the chunk was written with the batch writer", e);
+      }
+    }
+  }
+
+  // a refused statement, the next chunks would be refused the same way
+  private static boolean isBulkLoadUnavailable(Exception e) {
+    if (e instanceof UncheckedIOException || e instanceof BadSqlGrammarException || e instanceof PermissionDeniedDataAccessException) {
+      return true;
+    }
+    Throwable cause = e.getCause();
+    if (!(cause instanceof SQLException)) {
+      return false;
+    }
+    // the connector names the property it refuses local files without
+    return LOCAL_INFILE_DISABLED.contains(((SQLException) cause).getErrorCode()) ||
+      String.valueOf(cause.getMessage()).contains("allowLoadLocalInfile");
+  }
+
+  // LOAD DATA LOCAL reports skipped duplicates and converted values as warnings, UNNEST fails on them
+  private static int checkLoaded(Statement statement, int loaded, int expected) throws SQLException {
+    SQLWarning warning = statement.getWarnings();
+    if (loaded != expected || warning != null) {
+      throw new IncorrectUpdateSemanticsDataAccessException("Bulk load of " + expected + " transactions loaded " + loaded +
+        " rows" + (warning != null ? ", first warning: " + warning.getMessage() : ""));
+    }
+    return loaded;
+  }
+
+  private boolean bulkLoadSupported() {
+    if (databaseType == null) {
+      try {
+        databaseType = DatabaseType.fromMetaData(jdbcTemplate.getDataSource());
+      } catch (MetaDataAccessException | IllegalArgumentException e) {
+        logger.info("Unknown database, transactions are imported with the batch writer: {}", e.getMessage());
+        bulkLoadAvailable = false;
+        return false;
+      }
+      if (databaseType != DatabaseType.HSQL && databaseType != DatabaseType.MYSQL) {
+        logger.info("No bulk load for {}, transactions are imported with the batch writer", databaseType);
+        bulkLoadAvailable = false;
+      }
+    }
+    return bulkLoadAvailable;
+  }
+
+  private void insertUnnest(List<? extends Transaction> items) {
+    int size = items.size();
+    Object[] transactionIds = new Object[size];
+    Object[] accountIds = new Object[size];
+    Object[] descriptions = new Object[size];
+    Object[] credits = new Object[size];
+    Object[] debits = new Object[size];
+    Object[] timestamps = new Object[size];
+    for (int i = 0; i < size; i++) {
+      Transaction transaction = items.get(i);
+      transactionIds[i] = transaction.getTransactionId();
+      accountIds[i] = transaction.getAccountId();
+      descriptions[i] = transaction.getDescription();
+      credits[i] = transaction.getCredit();
+      debits[i] = transaction.getDebit();
+      timestamps[i] = transaction.getTimestamp() != null ? new Timestamp(transaction.getTimestamp().getTime()) : null;
+    }
+
+    jdbcTemplate.execute((Connection connection) -> {
+      try (PreparedStatement insert = connection.prepareStatement(importBatchId != null ? UNNEST_INSERT_WITH_BATCH : UNNEST_INSERT)) {
+        // HSQLDB binds an Object[] to an ARRAY parameter, createArrayOf does not convert Timestamp elements
+        insert.setObject(1, transactionIds);
+        insert.setObject(2, accountIds);
+        insert.setObject(3, descriptions);
+        insert.setObject(4, credits);
+        insert.setObject(5, debits);
+        insert.setObject(6, timestamps);
+        if (importBatchId != null) {
+          Object[] importBatchIds = new Object[size];
+          Arrays.fill(importBatchIds, importBatchId);
+          insert.setObject(7, importBatchIds);
+        }
+        return checkLoaded(insert, insert.executeUpdate(), size);
+      }
+    });
+  }
+
+  private void loadDataInfile(List<? extends Transaction> items) {
+    Path file = null;
+    try {
+      file = Files.createTempFile("transactions-", ".tsv");
+      try (BufferedWriter out = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+        for (Transaction transaction : items) {
+          writeRow(out, transaction);
+        }
+      }
+      String sql = "LOAD DATA LOCAL INFILE '" + file.toAbsolutePath().toString().replace("\\", "\\\\").replace("'", "\\'") + "' " +
+        "INTO TABLE TRANSACTION CHARACTER SET utf8mb4 " +
+        "FIELDS TERMINATED BY '\\t' ESCAPED BY '\\\\' LINES TERMINATED BY '\\n' " +
+        "(" + COLUMNS + (importBatchId != null ? ", IMPORT_BATCH_ID" : "") + ")";
+      jdbcTemplate.execute((Connection connection) -> {
+        try (Statement load = connection.createStatement()) {
+          return checkLoaded(load, load.executeUpdate(sql), items.size());
+        }
+      });
+    } catch (IOException e) {
+      throw new UncheckedIOException("Could not stage the transactions for LOAD DATA", e);
+    } finally {
+      if (file != null) {
+        try {
+          Files.deleteIfExists(file);
+        } catch (IOException e) {
+          logger.warn("Could not delete {}", file, e);
+        }
+      }
+    }
+  }
+
+  private void writeRow(BufferedWriter out, Transaction transaction) throws IOException {
+    out.write(Long.toString(transaction.getTransactionId()));
+    out.write('\t');
+    out.write(Long.toString(transaction.getAccountId()));
+    out.write('\t');
+    writeEscaped(out, transaction.getDescription());
+    out.write('\t');
+    writeEscaped(out, transaction.getCredit() != null ? transaction.getCredit().toPlainString() : null);
+    out.write('\t');
+    writeEscaped(out, transaction.getDebit() != null ? transaction.getDebit().toPlainString() : null);
+    out.write('\t');
+    // a local date time, as the driver sends a Timestamp when the server and the JVM share a time zone
+    writeEscaped(out, transaction.getTimestamp() != null ? timestampCodec.format(transaction.getTimestamp()) : null);
+    if (importBatchId != null) {
+      out.write('\t');
+      out.write(Long.toString(importBatchId));
+    }
+    out.write('\n');
+  }
+
+  private static void writeEscaped(BufferedWriter out, String value) throws IOException {
+    if (value == null) {
+      out.write("\\N");
+      return;
+    }
+    for (int i = 0; i < value.length(); i++) {
+      char c = value.charAt(i);
+      switch (c) {
+        case '\\':
+          out.write("\\\\");
+          break;
+        case '\t':
+          out.write("\\t");
+          break;
+        case '\n':
+          out.write("\\n");
+          break;
+        case '\r':
+          out.write("\\r");
+          break;
+        default:
+          out.write(c);
+      }
+    }
+  }
+}
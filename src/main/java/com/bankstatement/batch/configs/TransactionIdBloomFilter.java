@@ -0,0 +1,111 @@
+package com.bankstatement.batch.configs;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/***
+ * Bloom filter of transaction ids backed by a primitive long[] bit array.
+ * mightContain is never false for an added id and true for an id that was not added with about the false positive
+ * rate the filter was created for, as long as no more than the expected number of ids are added.
+ * Transaction ids come from upstream and are not dense, so unlike CustomerIdBitmap the memory depends only on
+ * the number of ids: 1M ids at 1% take about 1.2 MB.
+ * Not synchronized, ImportedTransactionIds guards the filter the workers of a partitioned import share.
+ */
+public class TransactionIdBloomFilter {
+
+  private static final int MAGIC = 0x54584246; // TXBF
+
+  private final long[] words;
+  private final long bitCount;
+  private final int hashFunctions;
+  private final long expectedIds;
+
+  private TransactionIdBloomFilter(long[] words, int hashFunctions, long expectedIds) {
+    this.words = words;
+    this.bitCount = (long) words.length * Long.SIZE;
+    this.hashFunctions = hashFunctions;
+    this.expectedIds = expectedIds;
+  }
+
+  public static TransactionIdBloomFilter create(long expectedIds, double falsePositiveRate) {
+    if (expectedIds <= 0) {
+      throw new IllegalArgumentException("Expected ids must be greater than zero: " + expectedIds);
+    }
+    if (falsePositiveRate <= 0 || falsePositiveRate >= 1) {
+      throw new IllegalArgumentException("False positive rate must be between 0 and 1: " + falsePositiveRate);
+    }
+    long bits = (long) Math.ceil(-expectedIds * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+    long wordCount = (bits + Long.SIZE - 1) / Long.SIZE;
+    if (wordCount > Integer.MAX_VALUE - 8) {
+      throw new IllegalArgumentException("Too many expected ids for a Bloom filter: " + expectedIds);
+    }
+    int hashFunctions = Math.max(1, (int) Math.round((double) bits / expectedIds * Math.log(2)));
+    return new TransactionIdBloomFilter(new long[(int) wordCount], hashFunctions, expectedIds);
+  }
+
+  public void add(long id) {
+    long hash1 = mix(id);
+    long hash2 = mix(hash1) | 1;
+    for (int i = 0; i < hashFunctions; i++) {
+      long bit = ((hash1 + i * hash2) & Long.MAX_VALUE) % bitCount;
+      words[(int) (bit >>> 6)] |= 1L << bit;
+    }
+  }
+
+  public boolean mightContain(long id) {
+    long hash1 = mix(id);
+    long hash2 = mix(hash1) | 1;
+    for (int i = 0; i < hashFunctions; i++) {
+      long bit = ((hash1 + i * hash2) & Long.MAX_VALUE) % bitCount;
+      if ((words[(int) (bit >>> 6)] & (1L << bit)) == 0) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /***
+   * The number of ids the filter was sized for, beyond it the false positive rate grows.
+   */
+  public long getExpectedIds() {
+    return expectedIds;
+  }
+
+  public void writeTo(DataOutput out) throws IOException {
+    out.writeInt(MAGIC);
+    out.writeLong(expectedIds);
+    out.writeInt(hashFunctions);
+    out.writeInt(words.length);
+    for (long word : words) {
+      out.writeLong(word);
+    }
+  }
+
+  public static TransactionIdBloomFilter readFrom(DataInput in) throws IOException {
+    if (in.readInt() != MAGIC) {
+      throw new IOException("Not a transaction id filter");
+    }
+    long expectedIds = in.readLong();
+    int hashFunctions = in.readInt();
+    int wordCount = in.readInt();
+    if (expectedIds <= 0 || hashFunctions <= 0 || wordCount <= 0) {
+      throw new IOException("Corrupt transaction id filter");
+    }
+    long[] words = new long[wordCount];
+    for (int i = 0; i < wordCount; i++) {
+      words[i] = in.readLong();
+    }
+    return new TransactionIdBloomFilter(words, hashFunctions, expectedIds);
+  }
+
+  // the murmur3 64 bit finalizer, transaction ids are often sequential
+  private static long mix(long value) {
+    value ^= value >>> 33;
+    value *= 0xff51afd7ed558ccdL;
+    value ^= value >>> 33;
+    value *= 0xc4ceb9fe1a85ec53L;
+    value ^= value >>> 33;
+    return value;
+  }
+}
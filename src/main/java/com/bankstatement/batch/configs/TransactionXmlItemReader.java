@@ -0,0 +1,159 @@
+package com.bankstatement.batch.configs;
+
+import com.bankstatement.batch.domain.Transaction;
+import org.springframework.batch.item.file.ResourceAwareItemReaderItemStream;
+import org.springframework.batch.item.support.AbstractItemCountingItemStreamItemReader;
+import org.springframework.batch.item.xml.StaxUtils;
+import org.springframework.core.io.Resource;
+import org.springframework.util.Assert;
+import org.springframework.util.ClassUtils;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.BufferedInputStream;
+import java.io.InputStream;
+import java.math.BigDecimal;
+
+/***
+ * Cursor based reader for the transactions.xml format.
+ * Each transaction element is mapped straight onto a Transaction with an XMLStreamReader,
+ * without the StAX event buffering and JAXB unmarshalling of StaxEventItemReader.
+ * Restart is based on the item count, already read transactions are skipped without being mapped.
+ */
+public class TransactionXmlItemReader extends AbstractItemCountingItemStreamItemReader<Transaction>
+  implements ResourceAwareItemReaderItemStream<Transaction> {
+
+  private static final String TRANSACTION = "transaction";
+
+  // no DTDs and no external entities, like StaxEventItemReader, transaction files come from upstream
+  private static final XMLInputFactory XML_INPUT_FACTORY = StaxUtils.createXmlInputFactory();
+
+  private Resource resource;
+  private boolean strict = true;
+
+  private InputStream inputStream;
+  private XMLStreamReader xmlReader;
+  private final TimestampCodec timestampCodec = TimestampCodec.systemDefault();
+
+  public TransactionXmlItemReader() {
+    setName(ClassUtils.getShortName(TransactionXmlItemReader.class));
+  }
+
+  @Override
+  public void setResource(Resource resource) {
+    this.resource = resource;
+  }
+
+  /***
+   * In strict mode (the default) a missing input resource fails the step.
+   */
+  public void setStrict(boolean strict) {
+    this.strict = strict;
+  }
+
+  @Override
+  protected void doOpen() throws Exception {
+    Assert.notNull(resource, "The resource must be set");
+    if (!resource.exists()) {
+      if (strict) {
+        throw new IllegalStateException("Input resource must exist (reader is in 'strict' mode): " + resource);
+      }
+      return;
+    }
+    inputStream = new BufferedInputStream(resource.getInputStream(), 64 * 1024);
+    xmlReader = XML_INPUT_FACTORY.createXMLStreamReader(inputStream);
+  }
+
+  @Override
+  protected Transaction doRead() throws Exception {
+    if (!moveToNextTransaction()) {
+      return null;
+    }
+
+    Transaction transaction = new Transaction();
+    while (xmlReader.nextTag() == XMLStreamConstants.START_ELEMENT) {
+      switch (xmlReader.getLocalName()) {
+        case "transactionId":
+          transaction.setTransactionId(Long.parseLong(xmlReader.getElementText().trim()));
+          break;
+        case "accountId":
+          transaction.setAccountId(Long.parseLong(xmlReader.getElementText().trim()));
+          break;
+        case "description":
+          transaction.setDescription(xmlReader.getElementText());
+          break;
+        case "credit":
+          transaction.setCredit(parseAmount(xmlReader.getElementText()));
+          break;
+        case "debit":
+          transaction.setDebit(parseAmount(xmlReader.getElementText()));
+          break;
+        case "timestamp":
+          String timestamp = xmlReader.getElementText().trim();
+          transaction.setTimestamp(timestamp.isEmpty() ? null : timestampCodec.parse(timestamp));
+          break;
+        default:
+          // unknown elements are ignored like JAXB does, with everything nested in them
+          skipElement();
+          break;
+      }
+    }
+    return transaction;
+  }
+
+  @Override
+  protected void jumpToItem(int itemIndex) throws Exception {
+    for (int i = 0; i < itemIndex; i++) {
+      if (!moveToNextTransaction()) {
+        return;
+      }
+      skipElement();
+    }
+  }
+
+  private boolean moveToNextTransaction() throws XMLStreamException {
+    if (xmlReader == null) {
+      return false;
+    }
+    while (xmlReader.hasNext()) {
+      if (xmlReader.next() == XMLStreamConstants.START_ELEMENT && TRANSACTION.equals(xmlReader.getLocalName())) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private void skipElement() throws XMLStreamException {
+    int depth = 1;
+    while (depth > 0) {
+      int event = xmlReader.next();
+      if (event == XMLStreamConstants.START_ELEMENT) {
+        depth++;
+      } else if (event == XMLStreamConstants.END_ELEMENT) {
+        depth--;
+      }
+    }
+  }
+
+  private static BigDecimal parseAmount(String text) {
+    String amount = text.trim();
+    return amount.isEmpty() ? null : new BigDecimal(amount);
+  }
+
+  @Override
+  protected void doClose() throws Exception {
+    try {
+      if (xmlReader != null) {
+        xmlReader.close();
+      }
+    } finally {
+      if (inputStream != null) {
+        inputStream.close();
+      }
+      xmlReader = null;
+      inputStream = null;
+    }
+  }
+}
@@ -0,0 +1,62 @@
+package com.bankstatement.batch.configs;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.core.task.TaskExecutor;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/***
+ * TaskExecutor that starts a virtual thread per task, on a JDK that has them (21, or 19 and 20 with preview features).
+ * The project builds on JDK 11, so the executor is looked up reflectively; isAvailable tells whether the running JDK has it.
+ * Virtual threads are not limited in number, the caller bounds the concurrency, see BoundedAsyncItemProcessor.
+ */
+public class VirtualThreadTaskExecutor implements TaskExecutor, DisposableBean {
+
+  private static final Method NEW_VIRTUAL_THREAD_EXECUTOR = findVirtualThreadExecutor();
+
+  private final ExecutorService executor;
+
+  public VirtualThreadTaskExecutor() {
+    if (NEW_VIRTUAL_THREAD_EXECUTOR == null) {
+      throw new IllegalStateException("Virtual threads are not available on Java " + System.getProperty("java.version"));
+    }
+    try {
+      executor = (ExecutorService) NEW_VIRTUAL_THREAD_EXECUTOR.invoke(null);
+    } catch (ReflectiveOperationException e) {
+      throw new IllegalStateException("Could not create a virtual thread executor", e);
+    }
+  }
+
+  public static boolean isAvailable() {
+    if (NEW_VIRTUAL_THREAD_EXECUTOR == null) {
+      return false;
+    }
+    try {
+      // preview builds have the method but refuse it without --enable-preview
+      ((ExecutorService) NEW_VIRTUAL_THREAD_EXECUTOR.invoke(null)).shutdown();
+      return true;
+    } catch (ReflectiveOperationException | RuntimeException e) {
+      return false;
+    }
+  }
+
+  private static Method findVirtualThreadExecutor() {
+    try {
+      return Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+    } catch (NoSuchMethodException e) {
+      return null;
+    }
+  }
+
+  @Override
+  public void execute(Runnable task) {
+    executor.execute(task);
+  }
+
+  @Override
+  public void destroy() {
+    executor.shutdown();
+  }
+}
@@ -2,19 +2,36 @@ package com.bankstatement.batch.configuration;
 
 import com.bankstatement.batch.configs.*;
 import com.bankstatement.batch.domain.*;
+import io.micrometer.core.instrument.Clock;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.logging.LoggingMeterRegistry;
+import io.micrometer.core.instrument.logging.LoggingRegistryConfig;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.batch.core.ChunkListener;
 import org.springframework.batch.core.Job;
 import org.springframework.batch.core.Step;
+import org.springframework.batch.core.StepExecutionListener;
 import org.springframework.batch.core.configuration.annotation.JobBuilderFactory;
 import org.springframework.batch.core.configuration.annotation.StepBuilderFactory;
 import org.springframework.batch.core.configuration.annotation.StepScope;
+import org.springframework.batch.core.job.builder.SimpleJobBuilder;
 import org.springframework.batch.core.launch.support.RunIdIncrementer;
+import org.springframework.batch.core.partition.support.MultiResourcePartitioner;
+import org.springframework.batch.core.step.builder.PartitionStepBuilder;
+import org.springframework.batch.core.step.builder.SimpleStepBuilder;
+import org.springframework.batch.core.step.builder.StepBuilder;
+import org.springframework.batch.item.ItemProcessor;
+import org.springframework.batch.item.ItemStreamReader;
+import org.springframework.batch.item.ItemStreamWriter;
+import org.springframework.batch.item.ItemWriter;
 import org.springframework.batch.item.database.JdbcBatchItemWriter;
 import org.springframework.batch.item.database.JdbcCursorItemReader;
 import org.springframework.batch.item.database.builder.JdbcBatchItemWriterBuilder;
 import org.springframework.batch.item.database.builder.JdbcCursorItemReaderBuilder;
-import org.springframework.batch.item.file.FlatFileItemReader;
 import org.springframework.batch.item.file.FlatFileItemWriter;
 import org.springframework.batch.item.file.MultiResourceItemWriter;
+import org.springframework.batch.item.file.ResourceAwareItemWriterItemStream;
 import org.springframework.batch.item.file.builder.FlatFileItemReaderBuilder;
 import org.springframework.batch.item.file.builder.MultiResourceItemWriterBuilder;
 import org.springframework.batch.item.file.mapping.FieldSetMapper;
@@ -22,56 +39,249 @@ import org.springframework.batch.item.file.transform.DelimitedLineTokenizer;
 import org.springframework.batch.item.file.transform.LineTokenizer;
 import org.springframework.batch.item.file.transform.PatternMatchingCompositeLineTokenizer;
 import org.springframework.batch.item.support.ClassifierCompositeItemWriter;
+import org.springframework.batch.item.support.PassThroughItemProcessor;
 import org.springframework.batch.item.validator.ValidatingItemProcessor;
-import org.springframework.batch.item.xml.StaxEventItemReader;
 import org.springframework.batch.item.xml.builder.StaxEventItemReaderBuilder;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
 import org.springframework.core.io.FileSystemResource;
 import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
 import org.springframework.oxm.jaxb.Jaxb2Marshaller;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.util.StringUtils;
 
 import javax.sql.DataSource;
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.sql.Timestamp;
+import java.time.Duration;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
 
 @Configuration
 public class importJobConfiguration {
 
+  private static final Logger logger = LoggerFactory.getLogger(importJobConfiguration.class);
+
   @Autowired
   private JobBuilderFactory jobBuilderFactory;
 
   @Autowired
   private StepBuilderFactory stepBuilderFactory;
 
+  @Autowired
+  private Environment environment;
+
+  @Autowired
+  private AccountItemProcessor accountItemProcessor;
+
+  @Autowired
+  private ImportedTransactionIds importedTransactionIds;
+
+  @Value("${bankstatement.metrics.enabled:false}")
+  private boolean metricsEnabled;
+
+  @Value("${bankstatement.customer-updates.chunk-size:100}")
+  private int customerUpdatesChunkSize;
+
+  @Value("${bankstatement.customer-updates.byte-reader:false}")
+  private boolean customerUpdateByteReader;
+
+  @Value("${bankstatement.customer-updates.memory-mapped:false}")
+  private boolean customerUpdateMemoryMapped;
+
+  @Value("${bankstatement.customer-updates.coalesce:false}")
+  private boolean customerUpdateCoalesce;
+
+  @Value("${bankstatement.transactions.chunk-size:100}")
+  private int transactionsChunkSize;
+
+  @Value("${bankstatement.transactions.stream-reader:false}")
+  private boolean transactionStreamReader;
+
+  @Value("${bankstatement.transactions.bulk-load:false}")
+  private boolean transactionsBulkLoad;
+
+  @Value("${bankstatement.transactions.deduplicate.enabled:false}")
+  private boolean transactionsDeduplicate;
+
+  @Value("${bankstatement.transactions.partitioned:false}")
+  private boolean transactionsPartitioned;
+
+  @Value("${bankstatement.transactions.grid-size:4}")
+  private int transactionsGridSize;
+
+  @Value("${bankstatement.apply.chunk-size:100}")
+  private int applyChunkSize;
+
+  @Value("${bankstatement.apply.aggregate:false}")
+  private boolean applyAggregate;
+
+  @Value("${bankstatement.apply.delta:false}")
+  private boolean applyDelta;
+
+  @Value("${bankstatement.statement.chunk-size:1}")
+  private int statementChunkSize;
+
+  @Value("${bankstatement.statement.incremental:false}")
+  private boolean statementIncremental;
+
+  @Value("${bankstatement.statement.async.enabled:false}")
+  private boolean statementAsync;
+
+  @Value("${bankstatement.statement.async.concurrency:4}")
+  private int statementAsyncConcurrency;
+
+  @Value("${bankstatement.statement.async.virtual-threads:false}")
+  private boolean statementAsyncVirtualThreads;
+
+  @Value("${bankstatement.statement.partitioned:false}")
+  private boolean statementPartitioned;
+
+  @Value("${bankstatement.statement.grid-size:4}")
+  private int statementGridSize;
+
+  @Value("${bankstatement.statement.keyset-paging:false}")
+  private boolean statementKeysetPaging;
+
+  @Value("${bankstatement.statement.page-size:1000}")
+  private int statementPageSize;
+
+  @Value("${bankstatement.statement.prefetch:false}")
+  private boolean statementPrefetch;
+
+  @Value("${bankstatement.statement.streaming-writer:false}")
+  private boolean statementStreamingWriter;
+
+  @Value("${bankstatement.statement.streaming-threshold:0}")
+  private long statementStreamingThreshold;
+
+  @Value("#{'${bankstatement.statement.output:files}' == 'bundle'}")
+  private boolean statementBundles;
+
+  @Value("${bankstatement.statement.bundle-size:10000}")
+  private int statementBundleSize;
+
+  @Value("${bankstatement.statement.bundle-directory:target/statement-bundle}")
+  private String statementBundleDirectory;
+
+  /***
+   * Reports the bankstatement.* meters of StepMetricsListener, AccountItemProcessor and CustomerItemValidator,
+   * and the spring.batch.* meters of Spring Batch, to the log every bankstatement.metrics.step.
+   * The meters are created in the global registry, they only record once this registry is added to it; closing the
+   * registry with its application context takes it out again, so no closed registry is left in the JVM.
+   */
+  @Bean(destroyMethod = "close")
+  @ConditionalOnProperty(name = "bankstatement.metrics.enabled", havingValue = "true")
+  public LoggingMeterRegistry loggingMeterRegistry(@Value("${bankstatement.metrics.step:60s}") Duration step) {
+    LoggingMeterRegistry registry = new LoggingMeterRegistry(new LoggingRegistryConfig() {
+      @Override
+      public String get(String key) {
+        return null;
+      }
+
+      @Override
+      public Duration step() {
+        return step;
+      }
+    }, Clock.SYSTEM) {
+      @Override
+      public void close() {
+        Metrics.removeRegistry(this);
+        super.close();
+      }
+    };
+    Metrics.addRegistry(registry);
+    return registry;
+  }
+
+  @Bean
+  public StepMetricsListener stepMetricsListener() {
+    return new StepMetricsListener(Metrics.globalRegistry);
+  }
+
   @Bean
   public Job job() throws Exception {
-    return this.jobBuilderFactory
+    warnIgnoredFlags();
+    SimpleJobBuilder job = this.jobBuilderFactory
       .get("customerImportJob")
-      .start(importCustomerUpdates())
-      .next(importTransactions())
-      .next(applyTransactions())
-      .next(generateStatements(null))
+      .start(importCustomerUpdates(null))
+      .next(transactionsPartitioned ? partitionedImportTransactions() : importTransactions())
+      .next(applyTransactions());
+    if (applyDelta) {
+      job.next(advanceApplyWatermark(null));
+    }
+    if (statementIncremental) {
+      job.next(statementPeriod());
+    }
+    job.next(statementPartitioned ? partitionedGenerateStatements() : generateStatements(null));
+    if (statementIncremental) {
+      job.next(advanceStatementDates(null));
+    }
+    return job
       .incrementer(new RunIdIncrementer())
       .build();
   }
 
   @Bean
-  public Step importCustomerUpdates() throws Exception {
-    return this.stepBuilderFactory.get("importCustomerUpdates")
-      .<CustomerUpdate, CustomerUpdate>chunk(100)
+  public Step importCustomerUpdates(CustomerItemValidator validator) throws Exception {
+    return metered(this.<CustomerUpdate, CustomerUpdate>chunk(this.stepBuilderFactory.get("importCustomerUpdates"),
+      "customer-updates", customerUpdatesChunkSize)
       .reader(customerUpdateItemReader(null))
       .processor(customerValidatingItemProcessor(null))
-      .writer(customerUpdateItemWriter())
+      .writer(customerUpdateItemWriter(null)))
+      .listener(validator)
       .build();
   }
 
+  /***
+   * The bankstatement.* flags that only apply in some modes, each one another flag turns off is named in a warning
+   * when the job is built, so the log tells which mode ran.
+   */
+  private void warnIgnoredFlags() {
+    warnIgnored(statementPrefetch && statementAsync, "bankstatement.statement.async.enabled",
+      "prefetch leaves nothing to process");
+    warnIgnored(statementPrefetch && statementStreamingThreshold > 0, "bankstatement.statement.streaming-threshold",
+      "prefetch loads every statement");
+    warnIgnored(statementPrefetch && statementKeysetPaging, "bankstatement.statement.keyset-paging",
+      "prefetch reads the customers with its own query");
+    warnIgnored(!statementAsync() && statementAsyncVirtualThreads, "bankstatement.statement.async.virtual-threads",
+      "statements are not processed async");
+    warnIgnored(!statementBundles && statementChunkSize != 1, "bankstatement.statement.chunk-size",
+      "statement files are written one statement per chunk unless bankstatement.statement.output is bundle");
+    warnIgnored(!statementBundles && environment.getProperty("bankstatement.statement.adaptive-chunk.enabled", Boolean.class, false),
+      "bankstatement.statement.adaptive-chunk.enabled",
+      "statement files are written one statement per chunk unless bankstatement.statement.output is bundle");
+    warnIgnored(!customerUpdateByteReader && customerUpdateMemoryMapped, "bankstatement.customer-updates.memory-mapped",
+      "only the byte-reader maps the file");
+  }
+
+  private static void warnIgnored(boolean ignored, String flag, String reason) {
+    if (ignored) {
+      logger.warn("{} is ignored: {}", flag, reason);
+    }
+  }
+
   @Bean
   @StepScope
-  public FlatFileItemReader<CustomerUpdate> customerUpdateItemReader(@Value("#{jobParameters['customerUpdateFile']}") Resource inputFile) throws Exception {
+  public ItemStreamReader<CustomerUpdate> customerUpdateItemReader(@Value("#{jobParameters['customerUpdateFile']}") Resource inputFile) throws Exception {
+    if (customerUpdateByteReader) {
+      CustomerUpdateFileItemReader reader = new CustomerUpdateFileItemReader();
+      reader.setName("customerUpdateItemReader");
+      reader.setResource(inputFile);
+      reader.setMemoryMapped(customerUpdateMemoryMapped);
+      return reader;
+    }
     return new FlatFileItemReaderBuilder<CustomerUpdate>()
       .name("customerUpdateItemReader")
       .resource(inputFile)
@@ -202,8 +412,12 @@ public class importJobConfiguration {
       .build();
   }
 
+  // coalescing merges the updates of a customer within a chunk into one UPDATE of every column
   @Bean
-  public ClassifierCompositeItemWriter<CustomerUpdate> customerUpdateItemWriter() {
+  public ItemWriter<CustomerUpdate> customerUpdateItemWriter(DataSource dataSource) {
+    if (customerUpdateCoalesce) {
+      return new CustomerUpdateCoalescingItemWriter(new JdbcTemplate(dataSource));
+    }
     CustomerClassifier classifier = new CustomerClassifier(
       customerNameUpdateItemWriter(null),
       customerAddressUpdateItemWriter(null),
@@ -215,17 +429,40 @@ public class importJobConfiguration {
 
   @Bean
   public Step importTransactions() {
-    return this.stepBuilderFactory
-      .get("importTransactions")
-      .<Transaction, Transaction>chunk(100)
-      .reader(transactionItemReader(null))
-      .writer(transactionItemWriter(null))
+    SimpleStepBuilder<Transaction, Transaction> step = this.<Transaction, Transaction>chunk(this.stepBuilderFactory.get("importTransactions"),
+      "transactions", transactionsChunkSize)
+      .reader(transactionItemReader(null));
+    if (transactionsDeduplicate) {
+      step.processor(duplicateTransactionItemProcessor())
+        .listener((StepExecutionListener) importedTransactionIds);
+    }
+    return metered(step
+      .writer(transactionItemWriter(null, null)))
       .build();
   }
 
+  /***
+   * Skips the transactions that are already in the TRANSACTION table, so overlapping transaction files can be imported.
+   */
+  @Bean
+  @StepScope
+  public DuplicateTransactionItemProcessor duplicateTransactionItemProcessor() {
+    return new DuplicateTransactionItemProcessor(importedTransactionIds);
+  }
+
   @Bean
   @StepScope
-  public StaxEventItemReader<Transaction> transactionItemReader(@Value("#{jobParameters['transactionFile']}") Resource transactionFile) {
+  public ItemStreamReader<Transaction> transactionItemReader(@Value("#{jobParameters['transactionFile']}") Resource transactionFile) {
+    return transactionReader(transactionFile);
+  }
+
+  private ItemStreamReader<Transaction> transactionReader(Resource transactionFile) {
+    if (transactionStreamReader) {
+      TransactionXmlItemReader reader = new TransactionXmlItemReader();
+      reader.setName("fooReader");
+      reader.setResource(transactionFile);
+      return reader;
+    }
     Jaxb2Marshaller unmarshaller = new Jaxb2Marshaller();
     unmarshaller.setClassesToBeBound(Transaction.class);
     return new StaxEventItemReaderBuilder<Transaction>()
@@ -237,7 +474,40 @@ public class importJobConfiguration {
   }
 
   @Bean
-  public JdbcBatchItemWriter<Transaction> transactionItemWriter(DataSource dataSource) {
+  @StepScope
+  // with delta apply every transaction is tagged with the job instance id as its import batch, see ApplyWatermarkTasklet
+  public ItemWriter<Transaction> transactionItemWriter(DataSource dataSource,
+                                                       @Value("#{stepExecution.jobExecution.jobId}") Long importBatchId) {
+    if (transactionsBulkLoad) {
+      JdbcBatchItemWriter<Transaction> fallback = transactionBatchItemWriter(dataSource, importBatchId);
+      fallback.afterPropertiesSet();
+      return new TransactionBulkLoadItemWriter(dataSource, fallback, applyDelta ? importBatchId : null);
+    }
+    return transactionBatchItemWriter(dataSource, importBatchId);
+  }
+
+  private JdbcBatchItemWriter<Transaction> transactionBatchItemWriter(DataSource dataSource, Long importBatchId) {
+    if (applyDelta) {
+      return new JdbcBatchItemWriterBuilder<Transaction>()
+        .dataSource(dataSource)
+        .sql("INSERT INTO TRANSACTION (TRANSACTION_ID, " +
+          "ACCOUNT_ACCOUNT_ID, " +
+          "DESCRIPTION, " +
+          "CREDIT, " +
+          "DEBIT, " +
+          "TIMESTAMP, " +
+          "IMPORT_BATCH_ID) VALUES (?, ?, ?, ?, ?, ?, ?)")
+        .itemPreparedStatementSetter((transaction, ps) -> {
+          ps.setLong(1, transaction.getTransactionId());
+          ps.setLong(2, transaction.getAccountId());
+          ps.setString(3, transaction.getDescription());
+          ps.setBigDecimal(4, transaction.getCredit());
+          ps.setBigDecimal(5, transaction.getDebit());
+          ps.setTimestamp(6, transaction.getTimestamp() != null ? new Timestamp(transaction.getTimestamp().getTime()) : null);
+          ps.setLong(7, importBatchId);
+        })
+        .build();
+    }
     return new JdbcBatchItemWriterBuilder<Transaction>()
       .dataSource(dataSource)
       .sql("INSERT INTO TRANSACTION (TRANSACTION_ID, " +
@@ -255,30 +525,111 @@ public class importJobConfiguration {
       .build();
   }
 
+  /***
+   * Partitioned version of importTransactions.
+   * transactionFile may then be a single file, a directory or a pattern like file:/data/transactions-*.xml,
+   * every file becomes a partition that is imported by its own importTransactionsWorker step on the transactionTaskExecutor.
+   * Each file restarts on its own, and the combined counts are stored in the job ExecutionContext.
+   * The workers share the ImportedTransactionIds of deduplicate, this step loads them before the workers start and
+   * saves them once all of them completed.
+   */
+  @Bean
+  public Step partitionedImportTransactions() throws Exception {
+    PartitionStepBuilder step = this.stepBuilderFactory.get("partitionedImportTransactions")
+      .partitioner("importTransactionsWorker", transactionFilePartitioner(null))
+      .step(importTransactionsWorker())
+      .gridSize(transactionsGridSize)
+      .taskExecutor(transactionTaskExecutor());
+    step.listener(new PartitionCountsListener("importTransactions"));
+    if (transactionsDeduplicate) {
+      step.listener((StepExecutionListener) importedTransactionIds);
+    }
+    return step.build();
+  }
+
+  @Bean
+  @StepScope
+  public MultiResourcePartitioner transactionFilePartitioner(@Value("#{jobParameters['transactionFile']}") String transactionFile) throws IOException {
+    MultiResourcePartitioner partitioner = new MultiResourcePartitioner();
+    partitioner.setResources(resolveTransactionFiles(transactionFile));
+    return partitioner;
+  }
+
+  private Resource[] resolveTransactionFiles(String transactionFile) throws IOException {
+    PathMatchingResourcePatternResolver resolver = new PathMatchingResourcePatternResolver();
+    Resource location = resolver.getResource(transactionFile);
+    if (location.exists() && location.isFile() && location.getFile().isDirectory()) {
+      return resolver.getResources(StringUtils.trimTrailingCharacter(transactionFile, '/') + "/*");
+    }
+    return resolver.getResources(transactionFile);
+  }
+
+  @Bean
+  public TaskExecutor transactionTaskExecutor() {
+    ThreadPoolTaskExecutor taskExecutor = new ThreadPoolTaskExecutor();
+    taskExecutor.setCorePoolSize(transactionsGridSize);
+    taskExecutor.setMaxPoolSize(transactionsGridSize);
+    taskExecutor.setThreadNamePrefix("transactions-");
+    taskExecutor.initialize();
+    return taskExecutor;
+  }
+
+  // the JdbcBatchItemWriter keeps no state between chunks, so the workers can share it
+  @Bean
+  public Step importTransactionsWorker() {
+    SimpleStepBuilder<Transaction, Transaction> step = this.<Transaction, Transaction>chunk(this.stepBuilderFactory.get("importTransactionsWorker"),
+      "transactions", transactionsChunkSize)
+      .reader(partitionedTransactionItemReader(null));
+    if (transactionsDeduplicate) {
+      step.processor(duplicateTransactionItemProcessor());
+    }
+    return metered(step
+      .writer(transactionItemWriter(null, null)))
+      .build();
+  }
+
+  @Bean
+  @StepScope
+  public ItemStreamReader<Transaction> partitionedTransactionItemReader(@Value("#{stepExecutionContext['fileName']}") Resource transactionFile) {
+    return transactionReader(transactionFile);
+  }
+
   @Bean
   public Step applyTransactions() {
-    return this.stepBuilderFactory.get("applyTransactions")
-      .<Transaction, Transaction>chunk(100)
-      .reader(applyTransactionReader(null))
-      .writer(applyTransactionWriter(null))
+    return metered(this.<Transaction, Transaction>chunk(this.stepBuilderFactory.get("applyTransactions"),
+      "apply", applyChunkSize)
+      .reader(applyTransactionReader(null, null))
+      .writer(applyTransactionWriter(null, null)))
 //      .faultTolerant().skip(Exception.class).skipLimit(2000)
       .build();
   }
 
   //Read from the Transaction table and write to update the account table
+  // when the balances are aggregated, the transactions of an account are read together so a chunk needs fewer updates
+  // with delta apply only the import batches after the watermark are read, a range of the transaction_import_batch index,
+  // so the sort covers the new transactions instead of the whole history
   @Bean
-  public JdbcCursorItemReader<Transaction> applyTransactionReader(DataSource dataSource) {
-    return new JdbcCursorItemReaderBuilder<Transaction>()
+  @StepScope
+  public JdbcCursorItemReader<Transaction> applyTransactionReader(DataSource dataSource,
+                                                                  @Value("#{stepExecution.jobExecution.jobId}") Long importBatchId) {
+    JdbcCursorItemReaderBuilder<Transaction> reader = new JdbcCursorItemReaderBuilder<Transaction>()
       .name("applyTransactionReader")
-      .dataSource(dataSource)
-      .sql("select transaction_id, " +
-        "account_account_id, " +
-        "description, " +
-        "credit, " +
-        "debit, " +
-        "timestamp " +
-        "from transaction " +
-        "order by timestamp")
+      .dataSource(dataSource);
+    String select = "select transaction_id, " +
+      "account_account_id, " +
+      "description, " +
+      "credit, " +
+      "debit, " +
+      "timestamp " +
+      "from transaction ";
+    if (applyDelta) {
+      // the applied transactions of the range are left out, they are the restart state instead of the read count
+      select += "where import_batch_id > ? and import_batch_id <= ? and " + AppliedTransactionItemWriter.NOT_APPLIED + " ";
+      reader.queryArguments(ApplyWatermarkTasklet.appliedImportBatch(new JdbcTemplate(dataSource)), importBatchId)
+        .saveState(false);
+    }
+    return reader
+      .sql(select + (applyAggregate ? "order by account_account_id, timestamp" : "order by timestamp"))
       .rowMapper((resultSet, i) ->
         new Transaction(
           resultSet.getLong("transaction_id"),
@@ -291,9 +642,22 @@ public class importJobConfiguration {
   }
 
   // update the Account table
+  // with delta apply every transaction is marked as applied in the chunk that applies it, see AppliedTransactionItemWriter
   @Bean
-  public JdbcBatchItemWriter<Transaction> applyTransactionWriter(DataSource dataSource) {
-    return new JdbcBatchItemWriterBuilder<Transaction>()
+  @StepScope
+  public ItemWriter<Transaction> applyTransactionWriter(DataSource dataSource,
+                                                        @Value("#{stepExecution.jobExecution.jobId}") Long applyBatchId) {
+    if (applyDelta) {
+      return new AppliedTransactionItemWriter(new JdbcTemplate(dataSource), balanceItemWriter(dataSource), applyBatchId);
+    }
+    return balanceItemWriter(dataSource);
+  }
+
+  private ItemWriter<Transaction> balanceItemWriter(DataSource dataSource) {
+    if (applyAggregate) {
+      return new AccountBalanceAggregatingItemWriter(new JdbcTemplate(dataSource));
+    }
+    JdbcBatchItemWriter<Transaction> itemWriter = new JdbcBatchItemWriterBuilder<Transaction>()
       .dataSource(dataSource)
       .sql("UPDATE ACCOUNT SET " +
         "BALANCE = BALANCE + :transactionAmount " +
@@ -301,47 +665,169 @@ public class importJobConfiguration {
       .beanMapped()
       .assertUpdates(false)
       .build();
+    itemWriter.afterPropertiesSet();
+    return itemWriter;
+  }
+
+  /***
+   * Delta apply: marks the applied import batches, the next run starts after them.
+   */
+  @Bean
+  public Step advanceApplyWatermark(JdbcTemplate jdbcTemplate) {
+    return this.stepBuilderFactory.get("advanceApplyWatermark")
+      .tasklet(new ApplyWatermarkTasklet(jdbcTemplate))
+      .build();
+  }
+
+  /***
+   * Incremental statements: fixes the end of the statement period before the statements are generated.
+   */
+  @Bean
+  public Step statementPeriod() {
+    return this.stepBuilderFactory.get("statementPeriod")
+      .tasklet(new StatementPeriodTasklet())
+      .build();
+  }
+
+  /***
+   * Incremental statements: starts the next period of the accounts that got a statement.
+   */
+  @Bean
+  public Step advanceStatementDates(JdbcTemplate jdbcTemplate) {
+    return this.stepBuilderFactory.get("advanceStatementDates")
+      .tasklet(new AdvanceStatementDateTasklet(jdbcTemplate))
+      .build();
   }
 
   @Bean
   public Step generateStatements(AccountItemProcessor itemProcessor) {
-    return this.stepBuilderFactory.get("generateStatements")
-      .<Statement, Statement>chunk(1)
-      .reader(statementItemReader(null))
-      .processor(itemProcessor)
-      .writer(statementItemWriter())
+    if (statementAsync()) {
+      return metered(this.<Statement, Future<Statement>>chunk(this.stepBuilderFactory.get("generateStatements"),
+        "statement", statementChunkSize())
+        .reader(statementItemReader(null, null))
+        .processor(asyncStatementItemProcessor(itemProcessor))
+        .writer(new FutureItemWriter<>(statementItemWriter(null))))
+        .listener((StepExecutionListener) itemProcessor)
+        .build();
+    }
+    return metered(this.<Statement, Statement>chunk(this.stepBuilderFactory.get("generateStatements"),
+      "statement", statementChunkSize())
+      .reader(statementItemReader(null, null))
+      .processor(statementItemProcessor(itemProcessor))
+      .writer(statementItemWriter(null)))
       .build();
   }
 
+  // the prefetching reader already returns statements with their accounts and transactions
+  private ItemProcessor<Statement, Statement> statementItemProcessor(AccountItemProcessor itemProcessor) {
+    return statementPrefetch ? new PassThroughItemProcessor<>() : itemProcessor;
+  }
+
+  // the prefetching reader leaves nothing to process, warnIgnoredFlags names the ignored flag
+  private boolean statementAsync() {
+    return statementAsync && !statementPrefetch;
+  }
+
+  // the account queries of a chunk run on the statementAsyncTaskExecutor, the writer takes the statements in order
+  // the wrapped processor is no longer seen as a listener, so the steps register it themselves
+  private ItemProcessor<Statement, Future<Statement>> asyncStatementItemProcessor(AccountItemProcessor itemProcessor) {
+    return new BoundedAsyncItemProcessor<>(itemProcessor, statementAsyncTaskExecutor(), statementAsyncConcurrency);
+  }
+
+  /***
+   * Executor of the async statement processing. When it falls behind, CallerRunsPolicy makes the step thread
+   * process the statement itself, BoundedAsyncItemProcessor keeps the number of statements in flight bounded first.
+   */
+  @Bean
+  public TaskExecutor statementAsyncTaskExecutor() {
+    if (statementAsyncVirtualThreads) {
+      if (VirtualThreadTaskExecutor.isAvailable()) {
+        return new VirtualThreadTaskExecutor();
+      }
+      logger.warn("Virtual threads are not available on Java {}, statements are processed on platform threads",
+        System.getProperty("java.version"));
+    }
+    ThreadPoolTaskExecutor taskExecutor = new ThreadPoolTaskExecutor();
+    taskExecutor.setCorePoolSize(statementAsyncConcurrency);
+    taskExecutor.setMaxPoolSize(statementAsyncConcurrency);
+    taskExecutor.setQueueCapacity(statementAsyncConcurrency);
+    taskExecutor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+    taskExecutor.setThreadNamePrefix("statement-async-");
+    taskExecutor.initialize();
+    return taskExecutor;
+  }
+
   @Bean
+  @StepScope
   // single object is read from database at a time.
-  public JdbcCursorItemReader<Statement> statementItemReader(DataSource dataSource) {
+  public ItemStreamReader<Statement> statementItemReader(DataSource dataSource,
+                                                         @Value("#{jobExecutionContext['statementPeriodEnd']}") Long periodEnd) {
+    if (statementPrefetch) {
+      CustomerStatementItemReader reader = new CustomerStatementItemReader(dataSource);
+      reader.setPeriodEnd(periodEnd != null ? new Timestamp(periodEnd) : null);
+      return reader;
+    }
+    if (statementKeysetPaging) {
+      CustomerKeysetItemReader reader = new CustomerKeysetItemReader(dataSource);
+      reader.setName("statementItemReader");
+      reader.setPageSize(statementPageSize);
+      reader.setPeriodEnd(periodEnd != null ? new Timestamp(periodEnd) : null);
+      return reader;
+    }
+    if (periodEnd != null) {
+      // incremental statements, only customers with transactions since their last statement
+      return new JdbcCursorItemReaderBuilder<Statement>()
+        .name("statementItemReader")
+        .dataSource(dataSource)
+        .sql("SELECT * FROM CUSTOMER c WHERE " + StatementPeriodTasklet.activeCustomer("c.customer_id"))
+        .queryArguments(new Timestamp(periodEnd))
+        .rowMapper(statementRowMapper())
+        .build();
+    }
     return new JdbcCursorItemReaderBuilder<Statement>()
       .name("statementItemReader")
       .dataSource(dataSource)
       .sql("SELECT * FROM CUSTOMER")
-      .rowMapper((resultSet, i) -> {
-        Customer customer = new Customer(resultSet.getLong("customer_id"),
-          resultSet.getString("first_name"),
-          resultSet.getString("middle_name"),
-          resultSet.getString("last_name"),
-          resultSet.getString("address1"),
-          resultSet.getString("address2"),
-          resultSet.getString("city"),
-          resultSet.getString("state"),
-          resultSet.getString("postal_code"),
-          resultSet.getString("ssn"),
-          resultSet.getString("email_address"),
-          resultSet.getString("home_phone"),
-          resultSet.getString("cell_phone"),
-          resultSet.getString("work_phone"),
-          resultSet.getInt("notification_pref"));
-        return new Statement(customer);
-      }).build();
-  }
-
-  @Bean
-  public FlatFileItemWriter<Statement> individualStatementItemWriter() {
+      .rowMapper(statementRowMapper())
+      .build();
+  }
+
+  private RowMapper<Statement> statementRowMapper() {
+    return (resultSet, i) -> {
+      Customer customer = new Customer(resultSet.getLong("customer_id"),
+        resultSet.getString("first_name"),
+        resultSet.getString("middle_name"),
+        resultSet.getString("last_name"),
+        resultSet.getString("address1"),
+        resultSet.getString("address2"),
+        resultSet.getString("city"),
+        resultSet.getString("state"),
+        resultSet.getString("postal_code"),
+        resultSet.getString("ssn"),
+        resultSet.getString("email_address"),
+        resultSet.getString("home_phone"),
+        resultSet.getString("cell_phone"),
+        resultSet.getString("work_phone"),
+        resultSet.getInt("notification_pref"));
+      return new Statement(customer);
+    };
+  }
+
+  @Bean
+  public ResourceAwareItemWriterItemStream<Statement> individualStatementItemWriter() {
+    return statementFileWriter();
+  }
+
+  // the streaming writer renders each statement straight into the file instead of building a String first,
+  // statements streamed past the streaming-threshold can only be written by it
+  private ResourceAwareItemWriterItemStream<Statement> statementFileWriter() {
+    if (statementStreamingWriter || statementStreamingThreshold > 0) {
+      StatementFileItemWriter itemWriter = new StatementFileItemWriter();
+      itemWriter.setName("individualStatementItemWriter");
+      itemWriter.setHeaderCallback(new StatementHeaderCallback());
+      itemWriter.setAccountRowSource(accountItemProcessor);
+      return itemWriter;
+    }
     FlatFileItemWriter<Statement> itemWriter = new FlatFileItemWriter<>();
     itemWriter.setName("individualStatementItemWriter");
     itemWriter.setHeaderCallback(new StatementHeaderCallback());
@@ -352,7 +838,10 @@ public class importJobConfiguration {
   //Generate statement for each customer
   @Bean
   @StepScope
-  public MultiResourceItemWriter<Statement> statementItemWriter() {
+  public ItemStreamWriter<Statement> statementItemWriter(@Value("#{stepExecution.jobExecution.jobId}") Long jobInstanceId) {
+    if (statementBundles) {
+      return statementBundleWriter("statements", jobInstanceId);
+    }
     return new MultiResourceItemWriterBuilder<Statement>()
       .name("statementItemWriter")
       .resource(new FileSystemResource("target/statement"))
@@ -360,4 +849,157 @@ public class importJobConfiguration {
       .delegate(individualStatementItemWriter())
       .build();
   }
+
+  /***
+   * Partitioned version of generateStatements.
+   * The CUSTOMER table is split into customer_id ranges and every range runs as its own worker step on the
+   * statementTaskExecutor, with its own reader, processor and writer, so restart state and output files stay per partition.
+   */
+  @Bean
+  public Step partitionedGenerateStatements() {
+    return this.stepBuilderFactory.get("partitionedGenerateStatements")
+      .partitioner("generateStatementsWorker", customerIdRangePartitioner(null))
+      .step(generateStatementsWorker(null))
+      .gridSize(statementGridSize)
+      .taskExecutor(statementTaskExecutor())
+      .build();
+  }
+
+  @Bean
+  public CustomerIdRangePartitioner customerIdRangePartitioner(JdbcTemplate jdbcTemplate) {
+    return new CustomerIdRangePartitioner(jdbcTemplate);
+  }
+
+  @Bean
+  public TaskExecutor statementTaskExecutor() {
+    ThreadPoolTaskExecutor taskExecutor = new ThreadPoolTaskExecutor();
+    taskExecutor.setCorePoolSize(statementGridSize);
+    taskExecutor.setMaxPoolSize(statementGridSize);
+    taskExecutor.setThreadNamePrefix("statement-");
+    taskExecutor.initialize();
+    return taskExecutor;
+  }
+
+  // the workers share the AccountItemProcessor: the state its beforeStep sets, the period end, the streamed customer ids
+  // and the job execution they were found for, comes from the job ExecutionContext, which every worker sees the same;
+  // state of a single worker step must not be kept there
+  @Bean
+  public Step generateStatementsWorker(AccountItemProcessor itemProcessor) {
+    if (statementAsync()) {
+      return metered(this.<Statement, Future<Statement>>chunk(this.stepBuilderFactory.get("generateStatementsWorker"),
+        "statement", statementChunkSize())
+        .reader(partitionedStatementItemReader(null, null, null, null))
+        .processor(asyncStatementItemProcessor(itemProcessor))
+        .writer(new FutureItemWriter<>(partitionedStatementItemWriter(null, null))))
+        .listener((StepExecutionListener) itemProcessor)
+        .build();
+    }
+    return metered(this.<Statement, Statement>chunk(this.stepBuilderFactory.get("generateStatementsWorker"),
+      "statement", statementChunkSize())
+      .reader(partitionedStatementItemReader(null, null, null, null))
+      .processor(statementItemProcessor(itemProcessor))
+      .writer(partitionedStatementItemWriter(null, null)))
+      .build();
+  }
+
+  @Bean
+  @StepScope
+  public ItemStreamReader<Statement> partitionedStatementItemReader(DataSource dataSource,
+                                                                    @Value("#{stepExecutionContext['minCustomerId']}") Long minCustomerId,
+                                                                    @Value("#{stepExecutionContext['maxCustomerId']}") Long maxCustomerId,
+                                                                    @Value("#{jobExecutionContext['statementPeriodEnd']}") Long periodEnd) {
+    if (statementPrefetch) {
+      CustomerStatementItemReader reader = new CustomerStatementItemReader(dataSource);
+      reader.setCustomerIdRange(minCustomerId, maxCustomerId);
+      reader.setPeriodEnd(periodEnd != null ? new Timestamp(periodEnd) : null);
+      return reader;
+    }
+    if (statementKeysetPaging) {
+      CustomerKeysetItemReader reader = new CustomerKeysetItemReader(dataSource);
+      reader.setName("partitionedStatementItemReader");
+      reader.setPageSize(statementPageSize);
+      reader.setCustomerIdRange(minCustomerId, maxCustomerId);
+      reader.setPeriodEnd(periodEnd != null ? new Timestamp(periodEnd) : null);
+      return reader;
+    }
+    if (periodEnd != null) {
+      return new JdbcCursorItemReaderBuilder<Statement>()
+        .name("partitionedStatementItemReader")
+        .dataSource(dataSource)
+        .sql("SELECT * FROM CUSTOMER c WHERE c.customer_id BETWEEN ? AND ? AND " +
+          StatementPeriodTasklet.activeCustomer("c.customer_id") + " ORDER BY c.customer_id")
+        .queryArguments(minCustomerId, maxCustomerId, new Timestamp(periodEnd))
+        .rowMapper(statementRowMapper())
+        .build();
+    }
+    return new JdbcCursorItemReaderBuilder<Statement>()
+      .name("partitionedStatementItemReader")
+      .dataSource(dataSource)
+      .sql("SELECT * FROM CUSTOMER WHERE customer_id BETWEEN ? AND ? ORDER BY customer_id")
+      .queryArguments(minCustomerId, maxCustomerId)
+      .rowMapper(statementRowMapper())
+      .build();
+  }
+
+  //Generate statement for each customer of the partition, the partition name keeps the file names unique
+  @Bean
+  @StepScope
+  public ItemStreamWriter<Statement> partitionedStatementItemWriter(@Value("#{stepExecutionContext['partitionName']}") String partitionName,
+                                                                    @Value("#{stepExecution.jobExecution.jobId}") Long jobInstanceId) {
+    if (statementBundles) {
+      return statementBundleWriter("statements-" + partitionName, jobInstanceId);
+    }
+    return new MultiResourceItemWriterBuilder<Statement>()
+      .name("partitionedStatementItemWriter")
+      .resource(new FileSystemResource("target/statement-" + partitionName))
+      .itemCountLimitPerResource(1)
+      .delegate(statementFileWriter())
+      .build();
+  }
+
+  /***
+   * Chunks of chunkSize items, or with bankstatement.{name}.adaptive-chunk.enabled an AdaptiveCompletionPolicy
+   * that starts at chunkSize and tunes it between adaptive-chunk.min-size and max-size.
+   * Statements are always written one per chunk unless they go to bundles.
+   */
+  private <I, O> SimpleStepBuilder<I, O> chunk(StepBuilder step, String name, int chunkSize) {
+    String prefix = "bankstatement." + name + ".adaptive-chunk.";
+    boolean adaptive = environment.getProperty(prefix + "enabled", Boolean.class, false);
+    if (!adaptive || ("statement".equals(name) && !statementBundles)) {
+      return step.chunk(chunkSize);
+    }
+    AdaptiveCompletionPolicy policy = new AdaptiveCompletionPolicy(name, chunkSize,
+      environment.getProperty(prefix + "min-size", Integer.class, 1),
+      environment.getProperty(prefix + "max-size", Integer.class, chunkSize * 10),
+      environment.getProperty(prefix + "target-time", Duration.class, Duration.ofSeconds(1)));
+    SimpleStepBuilder<I, O> builder = step.chunk(policy);
+    builder.listener((StepExecutionListener) policy);
+    builder.listener((ChunkListener) policy);
+    return builder;
+  }
+
+  private <I, O> SimpleStepBuilder<I, O> metered(SimpleStepBuilder<I, O> step) {
+    if (metricsEnabled) {
+      // the item listener parts are registered from the step and chunk listeners when the step is built
+      step.listener((StepExecutionListener) stepMetricsListener());
+      step.listener((ChunkListener) stepMetricsListener());
+    }
+    return step;
+  }
+
+  // MultiResourceItemWriter only moves to the next file at a chunk boundary, one statement per file needs chunks of one
+  private int statementChunkSize() {
+    return statementBundles ? statementChunkSize : 1;
+  }
+
+  // packs statement-bundle-size statements per bundle file, StatementBundleReader finds them again by customer id
+  // in the bundles of the latest job instance
+  private StatementBundleItemWriter statementBundleWriter(String prefix, Long jobInstanceId) {
+    StatementBundleItemWriter itemWriter = new StatementBundleItemWriter(
+      Paths.get(statementBundleDirectory), prefix, statementBundleSize);
+    itemWriter.setRunId(jobInstanceId);
+    itemWriter.setHeaderCallback(new StatementHeaderCallback());
+    itemWriter.setAccountRowSource(accountItemProcessor);
+    return itemWriter;
+  }
 }
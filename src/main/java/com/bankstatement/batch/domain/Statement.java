@@ -1,6 +1,5 @@
 package com.bankstatement.batch.domain;
 
-import lombok.AllArgsConstructor;
 import lombok.Getter;
 import lombok.Setter;
 import lombok.ToString;
@@ -8,7 +7,6 @@ import lombok.ToString;
 import java.util.ArrayList;
 import java.util.List;
 
-@AllArgsConstructor
 @Getter
 @Setter
 @ToString
@@ -16,7 +14,15 @@ public class Statement {
   private final Customer customer;
   private List<Account> accounts = new ArrayList<>();
 
+  // the accounts are too large to load, the writer streams them from the database while rendering
+  private boolean streamed;
+
   public Statement(Customer customer) {
     this.customer = customer;
   }
+
+  public Statement(Customer customer, List<Account> accounts) {
+    this.customer = customer;
+    this.accounts = accounts;
+  }
 }
@@ -1,6 +1,7 @@
 package com.bankstatement.batch.domain;
 
 import com.bankstatement.batch.configs.JaxbDateSerializer;
+import com.bankstatement.batch.configs.Money;
 import lombok.*;
 
 import javax.xml.bind.annotation.XmlRootElement;
@@ -11,7 +12,6 @@ import java.util.Date;
 @Getter
 @Setter
 @ToString
-@AllArgsConstructor
 @NoArgsConstructor
 @XmlRootElement(name = "transaction")
 public class Transaction {
@@ -27,6 +27,34 @@ public class Transaction {
 
   private Date timestamp;
 
+  // the amounts in cents for the summing loops, kept in step with credit and debit by their setters
+  @Setter(AccessLevel.NONE)
+  @ToString.Exclude
+  private long creditCents;
+
+  @Setter(AccessLevel.NONE)
+  @ToString.Exclude
+  private long debitCents;
+
+  public Transaction(long transactionId, long accountId, String description, BigDecimal credit, BigDecimal debit, Date timestamp) {
+    this.transactionId = transactionId;
+    this.accountId = accountId;
+    this.description = description;
+    setCredit(credit);
+    setDebit(debit);
+    this.timestamp = timestamp;
+  }
+
+  public void setCredit(BigDecimal credit) {
+    this.credit = credit;
+    this.creditCents = Money.toCents(credit);
+  }
+
+  public void setDebit(BigDecimal debit) {
+    this.debit = debit;
+    this.debitCents = Money.toCents(debit);
+  }
+
   @XmlJavaTypeAdapter(JaxbDateSerializer.class)
   public void setTimestamp(Date timestamp) {
     this.timestamp = timestamp;
@@ -42,7 +70,14 @@ public class Transaction {
     } else if (debit != null) {
       return debit;
     } else {
-      return new BigDecimal(0);
+      return BigDecimal.ZERO;
     }
   }
+
+  /***
+   * Credit plus debit in cents, without allocating.
+   */
+  public long getTransactionAmountCents() {
+    return Money.add(creditCents, debitCents);
+  }
 }
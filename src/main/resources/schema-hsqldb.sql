@@ -0,0 +1,61 @@
+-- embedded HSQLDB schema of the hsqldb and hsqldb-file profiles, the tables of schema-mysql.sql with the indexes
+-- of the statement and apply queries; every run starts from an empty database with the sample data of data-mysql.sql
+DROP TABLE customer_account IF EXISTS;
+DROP TABLE transaction IF EXISTS;
+DROP TABLE account IF EXISTS;
+DROP TABLE customer IF EXISTS;
+DROP TABLE apply_watermark IF EXISTS;
+
+CREATE TABLE   customer  (
+  customer_id BIGINT GENERATED BY DEFAULT AS IDENTITY (START WITH 1) NOT NULL PRIMARY KEY ,
+  first_name VARCHAR(45) NOT NULL ,
+  middle_name VARCHAR(45),
+  last_name VARCHAR(45) NOT NULL,
+  address1 VARCHAR(255) NOT NULL,
+  address2 VARCHAR(255),
+  city VARCHAR(50) NOT NULL,
+  state VARCHAR(20) NOT NULL,
+  postal_code CHAR(5) NOT NULL,
+  ssn VARCHAR(11) NOT NULL,
+  email_address VARCHAR(255),
+  home_phone VARCHAR(12),
+  cell_phone VARCHAR(12),
+  work_phone VARCHAR(12),
+  notification_pref CHAR(1) NOT NULL
+) ;
+
+CREATE TABLE   account  (
+  account_id BIGINT GENERATED BY DEFAULT AS IDENTITY (START WITH 1) NOT NULL PRIMARY KEY ,
+  balance FLOAT NOT NULL ,
+  last_statement_date TIMESTAMP NOT NULL
+) ;
+
+CREATE TABLE   transaction  (
+  transaction_id BIGINT GENERATED BY DEFAULT AS IDENTITY (START WITH 1) NOT NULL PRIMARY KEY ,
+  account_account_id BIGINT NOT NULL ,
+  description VARCHAR(255) NOT NULL,
+  credit FLOAT,
+  debit FLOAT,
+  timestamp TIMESTAMP,
+  import_batch_id BIGINT,
+  apply_batch_id BIGINT
+) ;
+
+-- the transactions of an account in statement order, and the apply order
+CREATE INDEX transaction_account_timestamp ON transaction (account_account_id, timestamp);
+CREATE INDEX transaction_timestamp ON transaction (timestamp);
+CREATE INDEX transaction_import_batch ON transaction (import_batch_id);
+
+CREATE TABLE   apply_watermark  (
+  name VARCHAR(100) NOT NULL PRIMARY KEY,
+  import_batch_id BIGINT NOT NULL
+) ;
+
+-- the sample data links a few customers to the same account twice, so there is no primary key
+CREATE TABLE   customer_account  (
+  customer_customer_id BIGINT NOT NULL,
+  account_account_id BIGINT NOT NULL
+) ;
+
+CREATE INDEX customer_account_customer ON customer_account (customer_customer_id, account_account_id);
+CREATE INDEX customer_account_account ON customer_account (account_account_id, customer_customer_id);
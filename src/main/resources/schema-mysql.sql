@@ -28,7 +28,19 @@ CREATE TABLE   transaction  (
   description VARCHAR(255) NOT NULL,
   credit FLOAT,
   debit FLOAT,
-  timestamp TIMESTAMP
+  timestamp TIMESTAMP,
+  import_batch_id BIGINT,
+  apply_batch_id BIGINT
+) ;
+
+-- the transactions of an account in statement order, and the apply order
+CREATE INDEX transaction_account_timestamp ON transaction (account_account_id, timestamp);
+CREATE INDEX transaction_timestamp ON transaction (timestamp);
+CREATE INDEX transaction_import_batch ON transaction (import_batch_id);
+
+CREATE TABLE   apply_watermark  (
+  name VARCHAR(100) NOT NULL PRIMARY KEY,
+  import_batch_id BIGINT NOT NULL
 ) ;
 
 CREATE TABLE   customer_account  (
@@ -36,5 +48,5 @@ CREATE TABLE   customer_account  (
   account_account_id BIGINT NOT NULL
 ) ;
 
-
-
+CREATE INDEX customer_account_customer ON customer_account (customer_customer_id, account_account_id);
+CREATE INDEX customer_account_account ON customer_account (account_account_id, customer_customer_id);
@@ -0,0 +1,16 @@
+package com.bankstatement.batch;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+// the embedded database, the job itself needs its input file parameters
+@SpringBootTest(properties = "spring.batch.job.enabled=false")
+@ActiveProfiles("hsqldb")
+class HsqldbApplicationTests {
+
+  @Test
+  void contextLoads() {
+  }
+
+}
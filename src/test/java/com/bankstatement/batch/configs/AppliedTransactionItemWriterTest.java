@@ -0,0 +1,81 @@
+package com.bankstatement.batch.configs;
+
+import com.bankstatement.batch.domain.Transaction;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class AppliedTransactionItemWriterTest {
+
+  // the query of the delta applyTransactionReader
+  private static final String SELECT_DELTA = "SELECT transaction_id, account_account_id, description, credit, debit, timestamp " +
+    "FROM transaction WHERE import_batch_id > ? AND import_batch_id <= ? AND " + AppliedTransactionItemWriter.NOT_APPLIED +
+    " ORDER BY timestamp";
+
+  private EmbeddedDatabase dataSource;
+  private JdbcTemplate jdbcTemplate;
+
+  @BeforeEach
+  void createTransactions() {
+    dataSource = TestDatabase.create();
+    jdbcTemplate = new JdbcTemplate(dataSource);
+    jdbcTemplate.update("INSERT INTO account VALUES (10, 0, '2018-05-01 00:00:00')");
+    // imported by job instance 5
+    for (long id = 1; id <= 4; id++) {
+      jdbcTemplate.update("INSERT INTO transaction VALUES (?, 10, 'Deposit', ?, NULL, ?, 5, NULL)",
+        id, id * 100, new Timestamp(id * 1000));
+    }
+  }
+
+  @AfterEach
+  void dropTransactions() {
+    dataSource.shutdown();
+  }
+
+  @Test
+  void aNewInstanceAfterAFailedApplyOnlyAppliesTheRest() throws Exception {
+    // instance 5 commits its first chunk, then fails before the watermark moves
+    List<Transaction> delta = delta(-1, 5);
+    writer(5).write(delta.subList(0, 2));
+    assertEquals(300, balance());
+
+    // the operator starts instance 6 instead of restarting 5, the watermark still stands before batch 5
+    List<Transaction> rest = delta(-1, 6);
+    assertEquals(2, rest.size());
+    writer(6).write(rest);
+
+    assertEquals(1000, balance());
+    assertEquals(2, (int) jdbcTemplate.queryForObject("SELECT COUNT(*) FROM transaction WHERE apply_batch_id = 6", Integer.class));
+  }
+
+  @Test
+  void transactionsThatAreAlreadyAppliedAreNotAppliedAgain() throws Exception {
+    List<Transaction> delta = delta(-1, 5);
+    writer(5).write(delta);
+    writer(6).write(delta);
+
+    assertEquals(1000, balance());
+  }
+
+  private AppliedTransactionItemWriter writer(long applyBatchId) {
+    return new AppliedTransactionItemWriter(jdbcTemplate, new AccountBalanceAggregatingItemWriter(jdbcTemplate), applyBatchId);
+  }
+
+  private List<Transaction> delta(long watermark, long importBatchId) {
+    return jdbcTemplate.query(SELECT_DELTA, (rs, i) -> new Transaction(rs.getLong(1), rs.getLong(2), rs.getString(3),
+      rs.getBigDecimal(4), rs.getBigDecimal(5), rs.getTimestamp(6)), watermark, importBatchId);
+  }
+
+  private double balance() {
+    return jdbcTemplate.queryForObject("SELECT balance FROM account WHERE account_id = 10", BigDecimal.class).doubleValue();
+  }
+}
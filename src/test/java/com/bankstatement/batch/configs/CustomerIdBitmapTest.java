@@ -0,0 +1,42 @@
+package com.bankstatement.batch.configs;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CustomerIdBitmapTest {
+
+  @Test
+  void keepsAnOutlierIdWithoutSizingTheBitmapForIt() {
+    // sized for 1 000 ids up to Long.MAX_VALUE, a bitmap up to the max id could not even be allocated
+    CustomerIdBitmap ids = new CustomerIdBitmap(Long.MAX_VALUE, 1_000);
+    for (long id = 1; id < 1_000; id++) {
+      ids.add(id);
+    }
+    ids.add(Long.MAX_VALUE);
+
+    assertEquals(1_000, ids.size());
+    assertTrue(ids.contains(999));
+    assertTrue(ids.contains(Long.MAX_VALUE));
+    assertFalse(ids.contains(0));
+    assertFalse(ids.contains(1_000));
+    assertFalse(ids.contains(Long.MAX_VALUE - 1));
+  }
+
+  @Test
+  void keepsSparseAndNegativeIds() {
+    CustomerIdBitmap ids = new CustomerIdBitmap(1L << 40, 3);
+    ids.add(-5);
+    ids.add(1L << 30);
+    ids.add(1L << 40);
+    ids.add(1L << 40);
+
+    assertEquals(3, ids.size());
+    assertTrue(ids.contains(-5));
+    assertTrue(ids.contains(1L << 30));
+    assertTrue(ids.contains(1L << 40));
+    assertFalse(ids.contains((1L << 30) + 1));
+  }
+}
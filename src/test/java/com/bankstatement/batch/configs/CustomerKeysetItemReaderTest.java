@@ -0,0 +1,97 @@
+package com.bankstatement.batch.configs;
+
+import com.bankstatement.batch.domain.Statement;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class CustomerKeysetItemReaderTest {
+
+  private EmbeddedDatabase dataSource;
+  private JdbcTemplate jdbcTemplate;
+
+  @BeforeEach
+  void createCustomers() {
+    dataSource = TestDatabase.create();
+    jdbcTemplate = new JdbcTemplate(dataSource);
+    // ids with gaps, inserted out of order
+    for (long id = 50; id >= 2; id -= 2) {
+      TestDatabase.insertCustomer(jdbcTemplate, id);
+    }
+  }
+
+  @AfterEach
+  void dropCustomers() {
+    dataSource.shutdown();
+  }
+
+  @Test
+  void readsAllCustomersInIdOrderWithoutTheUnusedColumns() throws Exception {
+    CustomerKeysetItemReader reader = reader();
+    reader.open(new ExecutionContext());
+
+    List<Long> ids = readIds(reader, Integer.MAX_VALUE);
+    reader.close();
+
+    assertEquals(25, ids.size());
+    for (int i = 0; i < ids.size(); i++) {
+      assertEquals(2L * (i + 1), ids.get(i));
+    }
+  }
+
+  @Test
+  void restartContinuesAfterTheLastCustomerId() throws Exception {
+    CustomerKeysetItemReader reader = reader();
+    ExecutionContext executionContext = new ExecutionContext();
+    reader.open(executionContext);
+    readIds(reader, 10);
+    reader.update(executionContext);
+    // read past the commit, then fail
+    readIds(reader, 3);
+    reader.close();
+
+    CustomerKeysetItemReader restarted = reader();
+    restarted.open(executionContext);
+    List<Long> ids = readIds(restarted, Integer.MAX_VALUE);
+    restarted.close();
+
+    assertEquals(15, ids.size());
+    assertEquals(22L, ids.get(0));
+  }
+
+  @Test
+  void readsOnlyTheCustomerIdRange() throws Exception {
+    CustomerKeysetItemReader reader = reader();
+    reader.setCustomerIdRange(10L, 19L);
+    reader.open(new ExecutionContext());
+
+    assertEquals(List.of(10L, 12L, 14L, 16L, 18L), readIds(reader, Integer.MAX_VALUE));
+    reader.close();
+  }
+
+  private CustomerKeysetItemReader reader() {
+    CustomerKeysetItemReader reader = new CustomerKeysetItemReader(dataSource);
+    reader.setPageSize(4);
+    return reader;
+  }
+
+  private static List<Long> readIds(CustomerKeysetItemReader reader, int max) throws Exception {
+    List<Long> ids = new ArrayList<>();
+    Statement statement;
+    while (ids.size() < max && (statement = reader.read()) != null) {
+      ids.add(statement.getCustomer().getId());
+      assertEquals("Street", statement.getCustomer().getAddress1());
+      assertNull(statement.getCustomer().getSsn());
+    }
+    return ids;
+  }
+}
@@ -0,0 +1,108 @@
+package com.bankstatement.batch.configs;
+
+import com.bankstatement.batch.domain.CustomerAddressUpdate;
+import com.bankstatement.batch.domain.CustomerContactUpdate;
+import com.bankstatement.batch.domain.CustomerNameUpdate;
+import com.bankstatement.batch.domain.CustomerUpdate;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class CustomerUpdateCoalescingItemWriterTest {
+
+  private EmbeddedDatabase dataSource;
+  private JdbcTemplate jdbcTemplate;
+
+  @BeforeEach
+  void createCustomers() {
+    dataSource = TestDatabase.create();
+    jdbcTemplate = new JdbcTemplate(dataSource);
+    for (long id = 1; id <= 3; id++) {
+      TestDatabase.insertCustomer(jdbcTemplate, id);
+    }
+    jdbcTemplate.update("UPDATE customer SET middle_name = 'Middle', email_address = 'old@example.com', home_phone = '111-111-1111'");
+  }
+
+  @AfterEach
+  void dropCustomers() {
+    dataSource.shutdown();
+  }
+
+  @Test
+  void laterUpdatesOfEveryRecordTypeWinAndNullsKeepTheValue() {
+    new CustomerUpdateCoalescingItemWriter(jdbcTemplate).write(Arrays.asList(
+      new CustomerNameUpdate(1, "Gibbie", null, "Peiro"),
+      new CustomerContactUpdate(1, "first@example.com", null, "222-222-2222", null, 2),
+      new CustomerAddressUpdate(1, "131 Killdeer Way", null, "Hamilton", null, null),
+      new CustomerNameUpdate(1, null, "M", "Lennon"),
+      new CustomerContactUpdate(1, "second@example.com", null, null, null, null),
+      new CustomerAddressUpdate(2, null, "Apt 2", null, "Ohio", null)));
+
+    Map<String, Object> first = customer(1);
+    assertEquals("Gibbie", first.get("FIRST_NAME"));
+    assertEquals("M", first.get("MIDDLE_NAME"));
+    assertEquals("Lennon", first.get("LAST_NAME"));
+    assertEquals("131 Killdeer Way", first.get("ADDRESS1"));
+    assertEquals("Hamilton", first.get("CITY"));
+    assertEquals("ST", first.get("STATE"));
+    assertEquals("second@example.com", first.get("EMAIL_ADDRESS"));
+    assertEquals("111-111-1111", first.get("HOME_PHONE"));
+    assertEquals("222-222-2222", first.get("CELL_PHONE"));
+    assertEquals("2", first.get("NOTIFICATION_PREF"));
+
+    Map<String, Object> second = customer(2);
+    assertEquals("Street", second.get("ADDRESS1"));
+    assertEquals("Apt 2", second.get("ADDRESS2"));
+    assertEquals("Ohio", second.get("STATE"));
+    assertEquals("First", second.get("FIRST_NAME"));
+  }
+
+  @Test
+  void sendsOneUpdatePerCustomerOrderedByCustomerId() {
+    List<Object> customerIds = new ArrayList<>();
+    JdbcTemplate recordingTemplate = new JdbcTemplate(dataSource) {
+      @Override
+      public int[] batchUpdate(String sql, List<Object[]> batchArgs) {
+        for (Object[] args : batchArgs) {
+          customerIds.add(args[args.length - 1]);
+        }
+        return super.batchUpdate(sql, batchArgs);
+      }
+    };
+
+    new CustomerUpdateCoalescingItemWriter(recordingTemplate).write(Arrays.asList(
+      new CustomerNameUpdate(3, "C", null, null),
+      new CustomerContactUpdate(1, "a@example.com", null, null, null, null),
+      new CustomerAddressUpdate(3, "Road", null, null, null, null),
+      new CustomerNameUpdate(2, "B", null, null),
+      new CustomerNameUpdate(1, "A", null, null)));
+
+    assertEquals(Arrays.asList(1L, 2L, 3L), customerIds);
+    assertEquals("Road", customer(3).get("ADDRESS1"));
+  }
+
+  @Test
+  void failsTheChunkForAMissingCustomer() {
+    CustomerUpdateCoalescingItemWriter writer = new CustomerUpdateCoalescingItemWriter(jdbcTemplate);
+    List<CustomerUpdate> updates = Arrays.asList(
+      new CustomerNameUpdate(1, "Gibbie", null, null),
+      new CustomerNameUpdate(42, "Nobody", null, null));
+
+    assertThrows(EmptyResultDataAccessException.class, () -> writer.write(updates));
+  }
+
+  private Map<String, Object> customer(long id) {
+    return jdbcTemplate.queryForMap("SELECT * FROM customer WHERE customer_id = ?", id);
+  }
+}
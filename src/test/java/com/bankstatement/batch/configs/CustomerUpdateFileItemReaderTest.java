@@ -0,0 +1,128 @@
+package com.bankstatement.batch.configs;
+
+import com.bankstatement.batch.configuration.importJobConfiguration;
+import com.bankstatement.batch.domain.CustomerUpdate;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.batch.item.ItemStreamReader;
+import org.springframework.batch.item.file.FlatFileItemReader;
+import org.springframework.batch.item.file.FlatFileParseException;
+import org.springframework.batch.item.file.builder.FlatFileItemReaderBuilder;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class CustomerUpdateFileItemReaderTest {
+
+  @TempDir
+  Path directory;
+
+  @Test
+  void readsTheSameUpdatesAsTheFlatFileReader() throws Exception {
+    Path file = directory.resolve("customer_update.csv");
+    Files.copy(new ClassPathResource("input/customer_update.csv").getInputStream(), file);
+    List<String> expected = readAll(flatFileReader(new FileSystemResource(file)));
+
+    assertEquals(expected, readAll(reader(new FileSystemResource(file), false)));
+    assertEquals(expected, readAll(reader(new ByteArrayResource(Files.readAllBytes(file)), false)));
+    // windows far smaller than the file, lines cross the window ends
+    CustomerUpdateFileItemReader mapped = reader(new FileSystemResource(file), true);
+    mapped.setMappedWindowSize(100);
+    assertEquals(expected, readAll(mapped));
+  }
+
+  @Test
+  void trimsAndUnquotesFieldsLikeTheTokenizer() throws Exception {
+    String lines = "# comment\r\n" +
+      "1,  7 ,\"Doe, Jane\",, Smith \r\n" +
+      "3,8,\"say \"\"hi\"\"\",,,555-0100, 2\n" +
+      "2,9,Main St,,Springfield,IL,62701";
+    Path file = directory.resolve("quoted.csv");
+    Files.write(file, lines.getBytes(StandardCharsets.UTF_8));
+
+    assertEquals(readAll(flatFileReader(new FileSystemResource(file))), readAll(reader(new FileSystemResource(file), false)));
+  }
+
+  @Test
+  void restartContinuesAfterTheLastCommit() throws Exception {
+    Path file = directory.resolve("customer_update.csv");
+    Files.copy(new ClassPathResource("input/customer_update.csv").getInputStream(), file);
+    List<String> expected = readAll(reader(new FileSystemResource(file), false));
+
+    for (boolean memoryMapped : new boolean[]{false, true}) {
+      ExecutionContext executionContext = new ExecutionContext();
+      CustomerUpdateFileItemReader reader = reader(new FileSystemResource(file), memoryMapped);
+      reader.open(executionContext);
+      for (int i = 0; i < 1000; i++) {
+        reader.read();
+      }
+      reader.update(executionContext);
+      // read but never committed
+      reader.read();
+      reader.close();
+
+      reader = reader(new FileSystemResource(file), memoryMapped);
+      reader.open(executionContext);
+      assertEquals(expected.get(1000), describe(reader.read()));
+      reader.close();
+    }
+  }
+
+  @Test
+  void reportsTheLineNumberOfAParseError() throws Exception {
+    String lines = "# comment\n1,1,John,,Doe\n2,2,too,few,fields\n";
+    CustomerUpdateFileItemReader reader = reader(new ByteArrayResource(lines.getBytes(StandardCharsets.UTF_8)), false);
+    reader.open(new ExecutionContext());
+    reader.read();
+    FlatFileParseException exception = assertThrows(FlatFileParseException.class, reader::read);
+    assertEquals(3, exception.getLineNumber());
+    assertEquals("2,2,too,few,fields", exception.getInput());
+    assertNull(reader.read());
+    reader.close();
+  }
+
+  private static CustomerUpdateFileItemReader reader(Resource resource, boolean memoryMapped) {
+    CustomerUpdateFileItemReader reader = new CustomerUpdateFileItemReader();
+    reader.setResource(resource);
+    reader.setMemoryMapped(memoryMapped);
+    return reader;
+  }
+
+  private static FlatFileItemReader<CustomerUpdate> flatFileReader(Resource resource) throws Exception {
+    importJobConfiguration configuration = new importJobConfiguration();
+    return new FlatFileItemReaderBuilder<CustomerUpdate>()
+      .name("customerUpdateItemReader")
+      .resource(resource)
+      .lineTokenizer(configuration.customerUpdatesLineTokenizer())
+      .fieldSetMapper(configuration.customerUpdateFieldSetMapper())
+      .build();
+  }
+
+  private static List<String> readAll(ItemStreamReader<CustomerUpdate> reader) throws Exception {
+    List<String> updates = new ArrayList<>();
+    reader.open(new ExecutionContext());
+    CustomerUpdate update;
+    while ((update = reader.read()) != null) {
+      updates.add(describe(update));
+    }
+    reader.close();
+    return updates;
+  }
+
+  // toString of the subclasses leaves the customer id out
+  private static String describe(CustomerUpdate update) {
+    return update.getCustomerId() + " " + update;
+  }
+}
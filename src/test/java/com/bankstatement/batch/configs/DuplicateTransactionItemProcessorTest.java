@@ -0,0 +1,132 @@
+package com.bankstatement.batch.configs;
+
+import com.bankstatement.batch.domain.Transaction;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.batch.core.BatchStatus;
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DuplicateTransactionItemProcessorTest {
+
+  private static final String INSERT_TRANSACTION = "INSERT INTO transaction (transaction_id, account_account_id, description) " +
+    "VALUES (?, 10, 'Coffee')";
+
+  @TempDir
+  Path directory;
+
+  private EmbeddedDatabase dataSource;
+  private JdbcTemplate jdbcTemplate;
+  private Path filterFile;
+  private ImportedTransactionIds importedIds;
+  private StepExecution managerStep;
+
+  @BeforeEach
+  void createTransactions() {
+    dataSource = TestDatabase.create();
+    jdbcTemplate = new JdbcTemplate(dataSource);
+    jdbcTemplate.update(INSERT_TRANSACTION, 1);
+    jdbcTemplate.update(INSERT_TRANSACTION, 2);
+    filterFile = directory.resolve("transaction-ids.bloom");
+    importedIds = new ImportedTransactionIds(jdbcTemplate, filterFile.toString(), 1000, 0.01);
+    managerStep = new StepExecution("partitionedImportTransactions", new JobExecution(1L));
+    importedIds.beforeStep(managerStep);
+  }
+
+  @AfterEach
+  void dropTransactions() {
+    dataSource.shutdown();
+  }
+
+  @Test
+  void workersImportAnIdOfTwoFilesOnce() {
+    DuplicateTransactionItemProcessor first = worker();
+    DuplicateTransactionItemProcessor second = worker();
+
+    // the chunks of both files are in flight at the same time
+    List<Long> firstChunk = process(first, 1, 3, 4, 3);
+    List<Long> secondChunk = process(second, 4, 5, 2);
+    assertEquals(Arrays.asList(3L, 4L), firstChunk);
+    assertEquals(Arrays.asList(5L), secondChunk);
+
+    commit(first, firstChunk);
+    commit(second, secondChunk);
+    // committed ids are found in the database by the other worker
+    assertEquals(Arrays.asList(6L), process(second, 3, 6));
+  }
+
+  @Test
+  void releasesTheIdsOfARolledBackChunk() {
+    DuplicateTransactionItemProcessor first = worker();
+    DuplicateTransactionItemProcessor second = worker();
+
+    assertEquals(Arrays.asList(7L), process(first, 7));
+    first.afterChunkError(null);
+
+    assertEquals(Arrays.asList(7L), process(second, 7));
+  }
+
+  @Test
+  void savesTheIdsOfEveryWorkerOnceTheManagerStepCompleted() throws Exception {
+    DuplicateTransactionItemProcessor first = worker();
+    DuplicateTransactionItemProcessor second = worker();
+    commit(first, process(first, 10, 11));
+    commit(second, process(second, 20, 21));
+    first.afterStep(new StepExecution("importTransactionsWorker", managerStep.getJobExecution()));
+    second.afterStep(new StepExecution("importTransactionsWorker", managerStep.getJobExecution()));
+    assertTrue(Files.notExists(filterFile));
+
+    managerStep.setStatus(BatchStatus.COMPLETED);
+    importedIds.afterStep(managerStep);
+
+    try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(filterFile)))) {
+      assertEquals(6, in.readLong());
+      assertEquals(21, in.readLong());
+      TransactionIdBloomFilter saved = TransactionIdBloomFilter.readFrom(in);
+      for (long id : new long[]{1, 2, 10, 11, 20, 21}) {
+        assertTrue(saved.mightContain(id));
+      }
+    }
+  }
+
+  private DuplicateTransactionItemProcessor worker() {
+    DuplicateTransactionItemProcessor processor = new DuplicateTransactionItemProcessor(importedIds);
+    processor.beforeStep(new StepExecution("importTransactionsWorker", managerStep.getJobExecution()));
+    processor.beforeChunk(null);
+    return processor;
+  }
+
+  private static List<Long> process(DuplicateTransactionItemProcessor processor, long... transactionIds) {
+    List<Long> passed = new ArrayList<>();
+    for (long transactionId : transactionIds) {
+      Transaction transaction = processor.process(new Transaction(transactionId, 10, "Coffee", null, BigDecimal.ONE, null));
+      if (transaction != null) {
+        passed.add(transaction.getTransactionId());
+      }
+    }
+    return passed;
+  }
+
+  private void commit(DuplicateTransactionItemProcessor processor, List<Long> transactionIds) {
+    jdbcTemplate.batchUpdate(INSERT_TRANSACTION,
+      transactionIds.stream().map(id -> new Object[]{id}).collect(Collectors.toList()));
+    processor.afterChunk(null);
+  }
+}
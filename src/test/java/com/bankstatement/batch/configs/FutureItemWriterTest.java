@@ -0,0 +1,153 @@
+package com.bankstatement.batch.configs;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.springframework.batch.core.BatchStatus;
+import org.springframework.batch.core.ChunkListener;
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.JobParameters;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.StepExecutionListener;
+import org.springframework.batch.core.job.builder.JobBuilder;
+import org.springframework.batch.core.launch.support.SimpleJobLauncher;
+import org.springframework.batch.core.repository.JobRepository;
+import org.springframework.batch.core.repository.support.MapJobRepositoryFactoryBean;
+import org.springframework.batch.core.step.builder.SimpleStepBuilder;
+import org.springframework.batch.core.step.builder.StepBuilder;
+import org.springframework.batch.item.ItemProcessor;
+import org.springframework.batch.item.support.ListItemReader;
+import org.springframework.batch.support.transaction.ResourcelessTransactionManager;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.transaction.TransactionSystemException;
+import org.springframework.transaction.support.DefaultTransactionStatus;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class FutureItemWriterTest {
+
+  // every third item is filtered
+  private static final ItemProcessor<Integer, Integer> PROCESSOR = item -> item % 3 == 0 ? null : item;
+
+  private final ResourcelessTransactionManager transactionManager = new ResourcelessTransactionManager();
+  private JobRepository jobRepository;
+  private ThreadPoolTaskExecutor taskExecutor;
+
+  @BeforeEach
+  void createRepository() throws Exception {
+    MapJobRepositoryFactoryBean factory = new MapJobRepositoryFactoryBean(transactionManager);
+    factory.afterPropertiesSet();
+    jobRepository = factory.getObject();
+    taskExecutor = new ThreadPoolTaskExecutor();
+    taskExecutor.setCorePoolSize(2);
+    taskExecutor.initialize();
+  }
+
+  @AfterEach
+  void stopExecutor() {
+    taskExecutor.shutdown();
+  }
+
+  @Test
+  void countsLikeTheSynchronousStep() throws Exception {
+    List<Integer> syncWritten = new ArrayList<>();
+    StepExecution sync = run("sync", new StepBuilder("step").repository(jobRepository)
+      .transactionManager(transactionManager)
+      .<Integer, Integer>chunk(4)
+      .reader(new ListItemReader<>(items()))
+      .processor(PROCESSOR)
+      .writer(syncWritten::addAll));
+
+    List<Integer> asyncWritten = new ArrayList<>();
+    StepExecution async = run("async", new StepBuilder("step").repository(jobRepository)
+      .transactionManager(transactionManager)
+      .<Integer, Future<Integer>>chunk(4)
+      .reader(new ListItemReader<>(items()))
+      .processor(new BoundedAsyncItemProcessor<>(PROCESSOR, taskExecutor, 2))
+      .writer(new FutureItemWriter<>(asyncWritten::addAll)));
+
+    assertEquals(asyncWritten, syncWritten);
+    assertEquals(14, async.getWriteCount());
+    assertEquals(sync.getReadCount(), async.getReadCount());
+    assertEquals(sync.getWriteCount(), async.getWriteCount());
+    assertEquals(sync.getFilterCount(), async.getFilterCount());
+    assertEquals(sync.getCommitCount(), async.getCommitCount());
+  }
+
+  @Test
+  void keepsTheCountsOfTheCommittedChunksWhenACommitFails() throws Exception {
+    StepExecution sync = run("sync", new StepBuilder("step").repository(jobRepository)
+      .transactionManager(new FailingTransactionManager())
+      .<Integer, Integer>chunk(4)
+      .reader(new ListItemReader<>(items()))
+      .processor(PROCESSOR)
+      .writer(items -> { }), BatchStatus.UNKNOWN);
+
+    StepExecution async = run("async", new StepBuilder("step").repository(jobRepository)
+      .transactionManager(new FailingTransactionManager())
+      .<Integer, Future<Integer>>chunk(4)
+      .reader(new ListItemReader<>(items()))
+      .processor(new BoundedAsyncItemProcessor<>(PROCESSOR, taskExecutor, 2))
+      .writer(new FutureItemWriter<>(items -> { })), BatchStatus.UNKNOWN);
+
+    assertEquals(sync.getWriteCount(), async.getWriteCount());
+    assertEquals(sync.getFilterCount(), async.getFilterCount());
+  }
+
+  @Test
+  void reportsFilteredFuturesAsFilteredInTheMetrics() throws Exception {
+    SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    StepMetricsListener listener = new StepMetricsListener(registry);
+    SimpleStepBuilder<Integer, Future<Integer>> step = new StepBuilder("step").repository(jobRepository)
+      .transactionManager(transactionManager)
+      .<Integer, Future<Integer>>chunk(4)
+      .reader(new ListItemReader<>(items()))
+      .processor(new BoundedAsyncItemProcessor<>(PROCESSOR, taskExecutor, 2))
+      .writer(new FutureItemWriter<>(items -> { }));
+    step.listener((StepExecutionListener) listener);
+    step.listener((ChunkListener) listener);
+
+    run("metered", step);
+
+    assertEquals(14, registry.counter("bankstatement.items.written", "step", "step").count());
+    assertEquals(7, registry.counter("bankstatement.items.filtered", "step", "step").count());
+  }
+
+  private StepExecution run(String jobName, SimpleStepBuilder<Integer, ?> step) throws Exception {
+    return run(jobName, step, BatchStatus.COMPLETED);
+  }
+
+  private StepExecution run(String jobName, SimpleStepBuilder<Integer, ?> step, BatchStatus status) throws Exception {
+    SimpleJobLauncher launcher = new SimpleJobLauncher();
+    launcher.setJobRepository(jobRepository);
+    launcher.afterPropertiesSet();
+    JobExecution execution = launcher.run(new JobBuilder(jobName).repository(jobRepository).start(step.build()).build(),
+      new JobParameters());
+    assertEquals(status, execution.getStatus());
+    return execution.getStepExecutions().iterator().next();
+  }
+
+  // the commit of the third chunk fails, its transaction and the step end in an unknown state
+  private static class FailingTransactionManager extends ResourcelessTransactionManager {
+    private int commits;
+
+    @Override
+    protected void doCommit(DefaultTransactionStatus status) {
+      if (++commits == 3) {
+        throw new TransactionSystemException("commit failed");
+      }
+      super.doCommit(status);
+    }
+  }
+
+  private static List<Integer> items() {
+    return IntStream.rangeClosed(1, 21).boxed().collect(Collectors.toList());
+  }
+}
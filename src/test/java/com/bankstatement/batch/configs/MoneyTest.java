@@ -0,0 +1,45 @@
+package com.bankstatement.batch.configs;
+
+import com.bankstatement.batch.domain.Transaction;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class MoneyTest {
+
+  @Test
+  void convertsAmountsToCents() {
+    assertEquals(0, Money.toCents(null));
+    assertEquals(1200, Money.toCents(new BigDecimal("12")));
+    assertEquals(-1234, Money.toCents(new BigDecimal("-12.34")));
+    assertEquals(1235, Money.toCents(new BigDecimal("12.345")));
+    assertEquals(-1235, Money.toCents(new BigDecimal("-12.345")));
+    // what a FLOAT column gives back for 0.1 and 15314.66
+    assertEquals(10, Money.toCents(new BigDecimal(0.1)));
+    assertEquals(1531466, Money.toCents(new BigDecimal(15314.66)));
+    assertEquals(new BigDecimal("-12.34"), Money.toBigDecimal(-1234));
+  }
+
+  @Test
+  void sumsExactly() {
+    long cents = 0;
+    for (int i = 0; i < 1000; i++) {
+      cents = Money.add(cents, Money.toCents(new BigDecimal(0.1)));
+    }
+    assertEquals(new BigDecimal("100.00"), Money.toBigDecimal(cents));
+    assertThrows(ArithmeticException.class, () -> Money.add(Long.MAX_VALUE, 1));
+  }
+
+  @Test
+  void transactionsKeepTheirCentsInStep() {
+    Transaction transaction = new Transaction(1, 2, "Coffee", new BigDecimal("10.50"), new BigDecimal("-3.25"), null);
+    assertEquals(725, transaction.getTransactionAmountCents());
+
+    transaction.setDebit(null);
+    assertEquals(1050, transaction.getTransactionAmountCents());
+    assertEquals(0, new Transaction().getTransactionAmountCents());
+  }
+}
@@ -0,0 +1,133 @@
+package com.bankstatement.batch.configs;
+
+import com.bankstatement.batch.domain.Account;
+import com.bankstatement.batch.domain.Customer;
+import com.bankstatement.batch.domain.Statement;
+import com.bankstatement.batch.domain.Transaction;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.batch.item.ExecutionContext;
+
+import java.io.StringWriter;
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class StatementBundleTest {
+
+  private final StatementLineAggregator aggregator = new StatementLineAggregator();
+  private final String lineSeparator = System.getProperty("line.separator");
+
+  @TempDir
+  Path directory;
+
+  @Test
+  void findsEveryStatementAcrossBundles() throws Exception {
+    List<Statement> statements = statements(1, 7);
+    StatementBundleItemWriter writer = writer();
+    writer.open(new ExecutionContext());
+    writer.write(statements.subList(0, 4));
+    writer.write(statements.subList(4, 7));
+    writer.close();
+
+    StatementBundleReader reader = new StatementBundleReader(directory);
+    assertEquals(7, reader.size());
+    for (Statement statement : statements) {
+      assertEquals(expected(statement), reader.find(statement.getCustomer().getId()));
+    }
+    assertNull(reader.find(42));
+  }
+
+  @Test
+  void restartTruncatesTheBundleToTheLastCommit() throws Exception {
+    List<Statement> statements = statements(1, 5);
+    ExecutionContext executionContext = new ExecutionContext();
+    StatementBundleItemWriter writer = writer();
+    writer.open(executionContext);
+    writer.write(statements.subList(0, 2));
+    writer.update(executionContext);
+    // a failed chunk that was written but never committed
+    writer.write(Collections.singletonList(statement(99)));
+    writer.close();
+
+    writer = writer();
+    writer.open(executionContext);
+    writer.write(statements.subList(2, 5));
+    writer.close();
+
+    StatementBundleReader reader = new StatementBundleReader(directory);
+    assertEquals(5, reader.size());
+    assertNull(reader.find(99));
+    for (Statement statement : statements) {
+      assertEquals(expected(statement), reader.find(statement.getCustomer().getId()));
+    }
+  }
+
+  @Test
+  void aSmallerSecondRunHidesTheBundlesOfTheFirst() throws Exception {
+    List<Statement> statements = statements(1, 7);
+    StatementBundleItemWriter writer = writer("statements", 1);
+    writer.open(new ExecutionContext());
+    writer.write(statements);
+    writer.close();
+    // the first run was partitioned
+    writer = writer("statements-partition1", 1);
+    writer.open(new ExecutionContext());
+    writer.write(statements(101, 2));
+    writer.close();
+
+    ExecutionContext executionContext = new ExecutionContext();
+    writer = writer("statements", 2);
+    writer.open(executionContext);
+    writer.write(statements.subList(0, 2));
+    writer.update(executionContext);
+    writer.close();
+
+    StatementBundleReader reader = new StatementBundleReader(directory);
+    assertEquals(2, reader.size());
+    assertEquals(expected(statements.get(1)), reader.find(2));
+    assertNull(reader.find(5));
+    assertNull(reader.find(101));
+  }
+
+  private StatementBundleItemWriter writer() {
+    return writer("statements", 0);
+  }
+
+  private StatementBundleItemWriter writer(String prefix, long runId) {
+    StatementBundleItemWriter writer = new StatementBundleItemWriter(directory, prefix, 3);
+    writer.setHeaderCallback(new StatementHeaderCallback());
+    writer.setRunId(runId);
+    return writer;
+  }
+
+  private String expected(Statement statement) throws Exception {
+    StringWriter output = new StringWriter();
+    new StatementHeaderCallback().writeHeader(output);
+    return output + lineSeparator + aggregator.aggregate(statement) + lineSeparator;
+  }
+
+  private static List<Statement> statements(long firstId, int count) {
+    List<Statement> statements = new ArrayList<>();
+    for (long id = firstId; id < firstId + count; id++) {
+      statements.add(statement(id));
+    }
+    return statements;
+  }
+
+  private static Statement statement(long customerId) {
+    Account account = new Account(customerId * 10, new BigDecimal("1200.50"), Timestamp.valueOf("2018-05-14 22:07:26"));
+    account.addTransaction(new Transaction(customerId, account.getId(), "Café " + customerId, new BigDecimal("12.34"), null,
+      Timestamp.valueOf("2018-06-01 19:39:53")));
+    Customer customer = new Customer(customerId, "Gibbie", null, "Peiro", "131 Killdeer Way", null, "Hamilton", "Ohio", "28815",
+      "693-26-6169", null, null, null, null, 2);
+    return new Statement(customer, Arrays.asList(account));
+  }
+}
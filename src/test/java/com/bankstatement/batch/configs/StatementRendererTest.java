@@ -0,0 +1,56 @@
+package com.bankstatement.batch.configs;
+
+import com.bankstatement.batch.domain.Account;
+import com.bankstatement.batch.domain.Customer;
+import com.bankstatement.batch.domain.Statement;
+import com.bankstatement.batch.domain.Transaction;
+import org.junit.jupiter.api.Test;
+
+import java.io.StringWriter;
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.util.Arrays;
+import java.util.Date;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class StatementRendererTest {
+
+  private final StatementLineAggregator aggregator = new StatementLineAggregator();
+  private final StatementRenderer renderer = new StatementRenderer();
+
+  @Test
+  void rendersTheSameOutputAsTheLineAggregator() throws Exception {
+    Account checking = new Account(405, new BigDecimal("18036.15"), Timestamp.valueOf("2018-05-14 22:07:26"));
+    checking.addTransaction(transaction(405, "Skinix", null, new BigDecimal("-438")));
+    checking.addTransaction(transaction(405, "Mydeo", new BigDecimal("10733.876"), null));
+    checking.addTransaction(transaction(405, "A description that is longer than the fifty character column", new BigDecimal("0.005"), new BigDecimal("-0.001")));
+    checking.addTransaction(transaction(405, "Empty", null, null));
+    checking.addTransaction(new Transaction(5, 405, "No timestamp", new BigDecimal("1"), null, null));
+    Account savings = new Account(894, new BigDecimal("-0.004"), new Date(0));
+
+    Statement statement = new Statement(customer("Gibbie", "Peiro"), Arrays.asList(checking, savings));
+
+    assertRendersLikeAggregator(statement);
+  }
+
+  @Test
+  void rendersCustomersWithoutAccounts() throws Exception {
+    assertRendersLikeAggregator(new Statement(customer("Amanda", null)));
+  }
+
+  private void assertRendersLikeAggregator(Statement statement) throws Exception {
+    StringWriter output = new StringWriter();
+    renderer.render(statement, output);
+    assertEquals(aggregator.aggregate(statement), output.toString());
+  }
+
+  private static Transaction transaction(long accountId, String description, BigDecimal credit, BigDecimal debit) {
+    return new Transaction(1, accountId, description, credit, debit, Timestamp.valueOf("2018-06-01 19:39:53"));
+  }
+
+  private static Customer customer(String firstName, String lastName) {
+    return new Customer(1, firstName, null, lastName, "131 Killdeer Way", null, "Hamilton", "Ohio", "28815",
+      "693-26-6169", null, null, null, null, 2);
+  }
+}
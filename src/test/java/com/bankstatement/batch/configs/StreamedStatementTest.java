@@ -0,0 +1,100 @@
+package com.bankstatement.batch.configs;
+
+import com.bankstatement.batch.domain.Customer;
+import com.bankstatement.batch.domain.Statement;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+
+import java.io.StringWriter;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class StreamedStatementTest {
+
+  private EmbeddedDatabase dataSource;
+  private JdbcTemplate jdbcTemplate;
+
+  @BeforeEach
+  void createAccounts() {
+    dataSource = TestDatabase.create();
+    jdbcTemplate = new JdbcTemplate(dataSource);
+
+    for (long customerId = 1; customerId <= 3; customerId++) {
+      TestDatabase.insertCustomer(jdbcTemplate, customerId);
+    }
+    jdbcTemplate.update("INSERT INTO account VALUES (10, 1803.15, '2018-05-14 22:07:26'), (11, -0.004, '2018-05-01 00:00:00'), " +
+      "(20, 12.5, '2018-05-14 00:00:00'), (30, 0, '2018-05-14 00:00:00')");
+    jdbcTemplate.update("INSERT INTO customer_account VALUES (1, 10), (1, 11), (2, 20), (3, 30)");
+    // the transactions of the two accounts of customer 1 alternate in time, every change of account opens a new block
+    jdbcTemplate.update("INSERT INTO transaction (transaction_id, account_account_id, description, credit, debit, timestamp) VALUES " +
+      "(1, 10, 'Skinix', NULL, -438, '2018-06-01 19:39:53'), " +
+      "(2, 10, 'Mydeo', 10733.876, NULL, '2018-06-02 10:00:00'), " +
+      "(3, 11, 'Savings interest', 0.005, -0.001, '2018-06-03 10:00:00'), " +
+      "(4, 10, 'A description that is longer than the fifty character column', 12.3, NULL, '2018-06-04 10:00:00'), " +
+      "(5, 10, 'Later', NULL, -1.99, '2018-06-05 10:00:00'), " +
+      "(6, 20, 'Single', 5, NULL, '2018-06-01 10:00:00')");
+  }
+
+  @AfterEach
+  void dropAccounts() {
+    dataSource.shutdown();
+  }
+
+  @Test
+  void rendersStreamedStatementsLikeLoadedOnes() throws Exception {
+    AccountItemProcessor loading = processor(0);
+    AccountItemProcessor streaming = processor(2);
+
+    for (long customerId = 1; customerId <= 3; customerId++) {
+      Statement loaded = loading.process(new Statement(customer(customerId)));
+      Statement streamed = streaming.process(new Statement(customer(customerId)));
+
+      assertFalse(loaded.isStreamed());
+      assertEquals(customerId == 1, streamed.isStreamed());
+      assertEquals(render(loaded, loading), render(streamed, streaming));
+    }
+  }
+
+  @Test
+  void streamsOnlyTheCustomersOverTheThreshold() throws Exception {
+    AccountItemProcessor streaming = processor(4);
+
+    assertTrue(streaming.process(new Statement(customer(1))).isStreamed());
+    assertFalse(streaming.process(new Statement(customer(2))).isStreamed());
+    assertFalse(streaming.process(new Statement(customer(3))).isStreamed());
+  }
+
+  @Test
+  void countsTheTransactionsOfAnAccountLinkedTwiceOnce() throws Exception {
+    jdbcTemplate.update("INSERT INTO customer_account VALUES (2, 20)");
+    AccountItemProcessor streaming = processor(1);
+
+    assertFalse(streaming.process(new Statement(customer(2))).isStreamed());
+  }
+
+  private AccountItemProcessor processor(long streamingThreshold) {
+    AccountItemProcessor processor = new AccountItemProcessor(jdbcTemplate, streamingThreshold);
+    processor.beforeStep(new StepExecution("generateStatements", new JobExecution(streamingThreshold + 1)));
+    return processor;
+  }
+
+  private static String render(Statement statement, AccountRowSource accountRowSource) throws Exception {
+    StatementRenderer renderer = new StatementRenderer();
+    renderer.setAccountRowSource(accountRowSource);
+    StringWriter output = new StringWriter();
+    renderer.render(statement, output);
+    return output.toString();
+  }
+
+  private static Customer customer(long id) {
+    return new Customer(id, "Gibbie", null, "Peiro", "131 Killdeer Way", null, "Hamilton", "Ohio", "28815",
+      null, null, null, null, null, 2);
+  }
+}
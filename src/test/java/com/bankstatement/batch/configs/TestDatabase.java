@@ -0,0 +1,34 @@
+package com.bankstatement.batch.configs;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+
+/***
+ * A new in-memory HSQLDB with the tables of schema-hsqldb.sql, in the MySQL syntax mode of the hsqldb profile.
+ * The tables start empty, a test inserts the rows it needs and shuts the database down when it is done.
+ */
+final class TestDatabase {
+
+  private TestDatabase() {
+  }
+
+  static EmbeddedDatabase create() {
+    EmbeddedDatabase database = new EmbeddedDatabaseBuilder()
+      .setType(EmbeddedDatabaseType.HSQL)
+      .generateUniqueName(true)
+      .addScript("classpath:schema-hsqldb.sql")
+      .build();
+    new JdbcTemplate(database).execute("SET DATABASE SQL SYNTAX MYS TRUE");
+    return database;
+  }
+
+  /***
+   * A customer with placeholder values in the NOT NULL columns and notification_pref 1.
+   */
+  static void insertCustomer(JdbcTemplate jdbcTemplate, long customerId) {
+    jdbcTemplate.update("INSERT INTO customer (customer_id, first_name, last_name, address1, city, state, postal_code, ssn, " +
+      "notification_pref) VALUES (?, 'First', 'Last', 'Street', 'City', 'ST', '12345', '000-00-0000', '1')", customerId);
+  }
+}
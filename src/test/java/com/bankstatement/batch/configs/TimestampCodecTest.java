@@ -0,0 +1,84 @@
+package com.bankstatement.batch.configs;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class TimestampCodecTest {
+
+  private final ZoneId zone = ZoneId.of("America/Chicago");
+  private final TimestampCodec codec = new TimestampCodec(zone);
+
+  @Test
+  void parsesAfternoonAndNoonHours() {
+    assertEquals(millis(LocalDateTime.of(2018, 6, 1, 19, 39, 53)), codec.parseMillis("2018-06-01 19:39:53"));
+    assertEquals(millis(LocalDateTime.of(2018, 6, 1, 12, 30, 0)), codec.parseMillis("2018-06-01 12:30:00"));
+  }
+
+  @Test
+  void repeatedTimestampsUseTheSameValue() {
+    long first = codec.parseMillis("2018-06-25 17:36:05");
+    assertEquals(first, codec.parseMillis("2018-06-25 17:36:05"));
+    assertEquals(first, codec.parse("2018-06-25 17:36:05").getTime());
+  }
+
+  @Test
+  void formatsRoundTrip() {
+    assertEquals("2018-06-25 17:36:05", codec.format(codec.parse("2018-06-25 17:36:05")));
+  }
+
+  @Test
+  void shortDateMatchesStringFormat() {
+    TimestampCodec systemCodec = TimestampCodec.systemDefault();
+    Date date = new Date(1527874793000L);
+    assertEquals(String.format("%tD", date), systemCodec.formatShortDate(date));
+    assertEquals(String.format("%tD", (Date) null), systemCodec.formatShortDate(null));
+  }
+
+  @Test
+  void rejectsOtherLayouts() {
+    assertThrows(IllegalArgumentException.class, () -> codec.parseMillis("2018-6-1 19:39:53"));
+    assertThrows(IllegalArgumentException.class, () -> codec.parseMillis("2018-06-01T19:39:53"));
+  }
+
+  @Test
+  void parsesConcurrently() throws Exception {
+    List<String> timestamps = IntStream.range(0, 5000)
+      .mapToObj(i -> String.format("2018-06-%02d %02d:%02d:%02d", 1 + i % 28, i % 24, i % 60, (i * 7) % 60))
+      .collect(Collectors.toList());
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    try {
+      Callable<Integer> task = () -> {
+        int mismatches = 0;
+        for (String timestamp : timestamps) {
+          LocalDateTime expected = LocalDateTime.parse(timestamp.replace(' ', 'T'));
+          if (codec.parseMillis(timestamp) != millis(expected)) {
+            mismatches++;
+          }
+        }
+        return mismatches;
+      };
+      for (Future<Integer> result : executor.invokeAll(List.of(task, task, task, task))) {
+        assertEquals(0, result.get());
+      }
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  private long millis(LocalDateTime dateTime) {
+    return dateTime.atZone(zone).toInstant().toEpochMilli();
+  }
+}
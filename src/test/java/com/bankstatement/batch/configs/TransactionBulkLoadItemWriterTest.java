@@ -0,0 +1,108 @@
+package com.bankstatement.batch.configs;
+
+import com.bankstatement.batch.domain.Transaction;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class TransactionBulkLoadItemWriterTest {
+
+  private EmbeddedDatabase dataSource;
+  private JdbcTemplate jdbcTemplate;
+
+  @BeforeEach
+  void createDatabase() {
+    dataSource = TestDatabase.create();
+    jdbcTemplate = new JdbcTemplate(dataSource);
+  }
+
+  @AfterEach
+  void dropDatabase() {
+    dataSource.shutdown();
+  }
+
+  @Test
+  void insertsTheChunkWithItsImportBatch() throws Exception {
+    List<Transaction> written = new ArrayList<>();
+    TransactionBulkLoadItemWriter writer = new TransactionBulkLoadItemWriter(dataSource, written::addAll, 7L);
+
+    writer.write(Arrays.asList(
+      new Transaction(1, 10, "Coffee\tshop", null, new BigDecimal("-3.25"), new Date(1500000000000L)),
+      new Transaction(2, 11, "Salary", new BigDecimal("2500.10"), null, null)));
+
+    assertEquals(0, written.size());
+    List<Map<String, Object>> rows = jdbcTemplate.queryForList("SELECT * FROM transaction ORDER BY transaction_id");
+    assertEquals(2, rows.size());
+    assertEquals("Coffee\tshop", rows.get(0).get("DESCRIPTION"));
+    assertEquals(-3.25, rows.get(0).get("DEBIT"));
+    assertNull(rows.get(0).get("CREDIT"));
+    assertEquals(1500000000000L, ((Timestamp) rows.get(0).get("TIMESTAMP")).getTime());
+    assertEquals(2500.10, rows.get(1).get("CREDIT"));
+    assertNull(rows.get(1).get("TIMESTAMP"));
+    assertEquals(7L, rows.get(1).get("IMPORT_BATCH_ID"));
+  }
+
+  @Test
+  void usesTheFallbackOnceTheBulkStatementIsRefused() throws Exception {
+    // no TRANSACTION table, the bulk statement fails and the fallback takes the chunk
+    jdbcTemplate.execute("ALTER TABLE transaction RENAME TO moved_transaction");
+    List<Transaction> written = new ArrayList<>();
+    TransactionBulkLoadItemWriter writer = new TransactionBulkLoadItemWriter(dataSource, written::addAll, null);
+    Transaction first = new Transaction(1, 10, "Coffee", null, BigDecimal.ONE, null);
+    Transaction second = new Transaction(2, 10, "Tea", null, BigDecimal.ONE, null);
+
+    writer.write(Arrays.asList(first));
+    jdbcTemplate.execute("ALTER TABLE moved_transaction RENAME TO transaction");
+    writer.write(Arrays.asList(second));
+
+    assertEquals(Arrays.asList(first, second), written);
+    assertEquals(0, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM transaction", Integer.class));
+  }
+
+  @Test
+  void keepsBulkLoadAfterAFailedChunk() throws Exception {
+    jdbcTemplate.update("INSERT INTO transaction (transaction_id, account_account_id, description, debit) VALUES (1, 10, 'Coffee', 1)");
+    List<Transaction> written = new ArrayList<>();
+    TransactionBulkLoadItemWriter writer = new TransactionBulkLoadItemWriter(dataSource, written::addAll, null);
+    Transaction duplicate = new Transaction(1, 10, "Coffee", null, BigDecimal.ONE, null);
+    Transaction next = new Transaction(2, 10, "Tea", null, BigDecimal.ONE, null);
+
+    writer.write(Arrays.asList(duplicate));
+    writer.write(Arrays.asList(next));
+
+    // the duplicate key is the fallback's to report, the next chunk is bulk loaded again
+    assertEquals(Arrays.asList(duplicate), written);
+    assertEquals(2, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM transaction", Integer.class));
+  }
+
+  @Test
+  void storesTheAmountsTheBatchWriterStores() throws Exception {
+    List<BigDecimal> amounts = Arrays.asList(new BigDecimal("10733.876"), new BigDecimal("0.1"), new BigDecimal("-0.004"),
+      new BigDecimal("1803.15"), new BigDecimal("123456789.123456789"));
+    List<Transaction> transactions = new ArrayList<>();
+    for (int i = 0; i < amounts.size(); i++) {
+      transactions.add(new Transaction(i + 1, 10, "Amount", amounts.get(i), amounts.get(i).negate(), null));
+      jdbcTemplate.update("INSERT INTO transaction (transaction_id, account_account_id, description, credit, debit) VALUES (?, 10, 'Amount', ?, ?)",
+        i + 101, amounts.get(i), amounts.get(i).negate());
+    }
+
+    new TransactionBulkLoadItemWriter(dataSource, items -> { throw new AssertionError("bulk load refused"); }, null).write(transactions);
+
+    assertEquals(
+      jdbcTemplate.queryForList("SELECT credit, debit FROM transaction WHERE transaction_id > 100 ORDER BY transaction_id"),
+      jdbcTemplate.queryForList("SELECT credit, debit FROM transaction WHERE transaction_id < 100 ORDER BY transaction_id"));
+  }
+}
@@ -0,0 +1,50 @@
+package com.bankstatement.batch.configs;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TransactionIdBloomFilterTest {
+
+  @Test
+  void hasNoFalseNegativesAndAboutTheExpectedFalsePositives() {
+    TransactionIdBloomFilter filter = TransactionIdBloomFilter.create(100_000, 0.01);
+    for (long id = 1; id <= 100_000; id++) {
+      filter.add(id);
+    }
+
+    for (long id = 1; id <= 100_000; id++) {
+      assertTrue(filter.mightContain(id));
+    }
+    int falsePositives = 0;
+    for (long id = 1_000_001; id <= 1_100_000; id++) {
+      if (filter.mightContain(id)) {
+        falsePositives++;
+      }
+    }
+    assertTrue(falsePositives < 2_000, falsePositives + " false positives");
+  }
+
+  @Test
+  void readsBackWhatWasWritten() throws Exception {
+    TransactionIdBloomFilter filter = TransactionIdBloomFilter.create(1_000, 0.01);
+    for (long id = 0; id < 1_000; id += 3) {
+      filter.add(id * 7919);
+    }
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    filter.writeTo(new DataOutputStream(bytes));
+
+    TransactionIdBloomFilter read = TransactionIdBloomFilter.readFrom(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+
+    assertEquals(filter.getExpectedIds(), read.getExpectedIds());
+    for (long id = 0; id < 1_000; id++) {
+      assertEquals(filter.mightContain(id * 7919), read.mightContain(id * 7919));
+    }
+  }
+}
@@ -0,0 +1,87 @@
+package com.bankstatement.batch.configs;
+
+import com.bankstatement.batch.domain.Transaction;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.core.io.ByteArrayResource;
+
+import javax.xml.stream.XMLStreamException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class TransactionXmlItemReaderTest {
+
+  private static final String TRANSACTION = "<transaction><transactionId>1</transactionId><accountId>405</accountId>" +
+    "<description>%s</description><credit/><debit>-438</debit><timestamp>2018-06-01 19:39:53</timestamp></transaction>";
+
+  @Test
+  void readsTransactions() throws Exception {
+    TransactionXmlItemReader reader = reader("<?xml version='1.0' encoding='UTF-8'?><transactions>" +
+      String.format(TRANSACTION, "Skinix") + "</transactions>");
+
+    Transaction transaction = reader.read();
+    assertEquals("Skinix", transaction.getDescription());
+    assertEquals(-43800, transaction.getDebitCents());
+    assertNull(reader.read());
+    reader.close();
+  }
+
+  @Test
+  void skipsUnknownElementsWithNestedElements() throws Exception {
+    TransactionXmlItemReader reader = reader("<?xml version='1.0' encoding='UTF-8'?><transactions>" +
+      "<transaction><extra><nested>x</nested><nested><deeper/></nested></extra><transactionId>1</transactionId>" +
+      "<accountId>405</accountId><description>Skinix</description><note>plain</note><credit/><debit>-438</debit>" +
+      "<timestamp>2018-06-01 19:39:53</timestamp></transaction>" +
+      String.format(TRANSACTION, "Mydeo") + "</transactions>");
+
+    Transaction transaction = reader.read();
+    assertEquals(1, transaction.getTransactionId());
+    assertEquals(405, transaction.getAccountId());
+    assertEquals("Skinix", transaction.getDescription());
+    assertEquals(-43800, transaction.getDebitCents());
+    assertEquals("Mydeo", reader.read().getDescription());
+    assertNull(reader.read());
+    reader.close();
+  }
+
+  @Test
+  void rejectsExternalEntities(@TempDir Path directory) throws Exception {
+    Path secret = Files.write(directory.resolve("secret.txt"), "secret".getBytes(StandardCharsets.UTF_8));
+    TransactionXmlItemReader reader = reader("<?xml version='1.0' encoding='UTF-8'?>" +
+      "<!DOCTYPE transactions [<!ENTITY xxe SYSTEM \"" + secret.toUri() + "\">]><transactions>" +
+      String.format(TRANSACTION, "&xxe;") + "</transactions>");
+
+    assertThrows(XMLStreamException.class, reader::read);
+    reader.close();
+  }
+
+  @Test
+  void rejectsEntityExpansion() throws Exception {
+    StringBuilder doctype = new StringBuilder("<!DOCTYPE transactions [<!ENTITY lol0 \"lol\">");
+    for (int i = 1; i < 10; i++) {
+      doctype.append("<!ENTITY lol").append(i).append(" \"");
+      for (int j = 0; j < 10; j++) {
+        doctype.append("&lol").append(i - 1).append(';');
+      }
+      doctype.append("\">");
+    }
+    TransactionXmlItemReader reader = reader("<?xml version='1.0' encoding='UTF-8'?>" + doctype + "]><transactions>" +
+      String.format(TRANSACTION, "&lol9;") + "</transactions>");
+
+    assertThrows(XMLStreamException.class, reader::read);
+    reader.close();
+  }
+
+  private static TransactionXmlItemReader reader(String xml) {
+    TransactionXmlItemReader reader = new TransactionXmlItemReader();
+    reader.setResource(new ByteArrayResource(xml.getBytes(StandardCharsets.UTF_8)));
+    reader.open(new ExecutionContext());
+    return reader;
+  }
+}